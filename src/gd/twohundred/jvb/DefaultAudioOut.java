@@ -1,7 +1,7 @@
 package gd.twohundred.jvb;
 
-import gd.twohundred.jvb.audioutils.CircularSampleBuffer;
-import gd.twohundred.jvb.audioutils.LinearResampler;
+import gd.twohundred.jvb.audioutils.Resampler;
+import gd.twohundred.jvb.audioutils.SampleRingBuffer;
 import gd.twohundred.jvb.components.interfaces.AudioOut;
 
 import javax.sound.sampled.AudioFormat;
@@ -11,24 +11,40 @@ import javax.sound.sampled.Line;
 import javax.sound.sampled.LineUnavailableException;
 import javax.sound.sampled.Mixer;
 import javax.sound.sampled.SourceDataLine;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.util.concurrent.locks.LockSupport;
 
 import static gd.twohundred.jvb.Utils.mask;
-import static java.lang.Integer.max;
-import static java.lang.Integer.min;
 
+/**
+ * Resamples VSU output on the emulation thread into a {@link SampleRingBuffer} which a dedicated audio thread drains
+ * into the output line, so the emulation never blocks on the device.
+ */
 public class DefaultAudioOut implements AudioOut {
     private static final int AUDIO_LATENCY_MS = 50;
+    private static final int LINE_LATENCY_MS = 40;
+    private static final int WRITE_CHUNK_FRAMES = 256;
+    private static final int RESAMPLE_BLOCK_FRAMES = 64;
+    private static final long IDLE_PARK_NS = 1_000_000;
 
     private static final int OUT_BITS = 16;
-    private final LinearResampler resampler;
+    private static final int BYTES_PER_FRAME = 2 * OUT_BITS / Byte.SIZE;
+    private final Resampler resampler;
     private final SourceDataLine outDataLine;
     private final Logger logger;
-    private final CircularSampleBuffer buffer;
-    private long startT;
-    private long samplesSunk;
+    private final SampleRingBuffer ring;
+    private final Thread writer;
+    private final short[] inputBlock = new short[RESAMPLE_BLOCK_FRAMES * 2];
+    private final short[] outputBlock;
+    private int inputFrames;
 
-    public DefaultAudioOut(Logger logger) {
+    private volatile boolean running = true;
+    private volatile long underruns;
+    private volatile long overruns;
+
+    public DefaultAudioOut(Logger logger, Resampler.Kind resamplerKind) {
         this.logger = logger;
         Mixer mixer = AudioSystem.getMixer(null);
         SourceDataLine outLine = null;
@@ -59,22 +75,31 @@ public class DefaultAudioOut implements AudioOut {
         if (outLine != null) {
             int outRate = (int) outLine.getFormat().getSampleRate();
             assert outRate != AudioSystem.NOT_SPECIFIED && outRate > 0;
-            resampler = new LinearResampler(AudioOut.OUTPUT_SAMPLING_DECIHZ, outRate * 10);
+            resampler = resamplerKind.create(AudioOut.OUTPUT_SAMPLING_DECIHZ, outRate * 10);
+            outputBlock = new short[resampler.getMaxOutputFrames(RESAMPLE_BLOCK_FRAMES) * 2];
             try {
-                outLine.open(outLine.getFormat());
+                outLine.open(outLine.getFormat(), outRate * LINE_LATENCY_MS / 1000 * BYTES_PER_FRAME);
                 outLine.start();
                 logger.warning(Logger.Component.VSU, "Line out rate: %f", outLine.getFormat().getSampleRate());
             } catch (LineUnavailableException e) {
                 logger.error(Logger.Component.VSU, e, "Advertised audio line could not be open in the selected format");
                 outLine = null;
             }
-            buffer = new CircularSampleBuffer(ByteOrder.nativeOrder(), outRate * AUDIO_LATENCY_MS / 1000);
+            ring = new SampleRingBuffer(outRate * AUDIO_LATENCY_MS / 1000);
         } else {
             logger.error(Logger.Component.VSU, "Could not find compatible audio line");
             resampler = null;
-            buffer = null;
+            outputBlock = null;
+            ring = null;
         }
         outDataLine = outLine;
+        if (outDataLine != null) {
+            writer = new Thread(this::drain, "Audio");
+            writer.setDaemon(true);
+            writer.start();
+        } else {
+            writer = null;
+        }
     }
 
     @Override
@@ -86,41 +111,92 @@ public class DefaultAudioOut implements AudioOut {
         assert (mask(AudioOut.OUTPUT_BITS) & right) == right;
         int scaledSampleLeft = left << (16 - AudioOut.OUTPUT_BITS - 1);
         int scaledSampleRight = right << (16 - AudioOut.OUTPUT_BITS - 1);
-        resampler.in(scaledSampleLeft, scaledSampleRight, this::sink);
+        inputBlock[inputFrames * 2] = (short) scaledSampleLeft;
+        inputBlock[inputFrames * 2 + 1] = (short) scaledSampleRight;
+        if (++inputFrames == RESAMPLE_BLOCK_FRAMES) {
+            flush();
+        }
     }
 
-    private void sink(int left, int right) {
+    private void flush() {
+        int frames = resampler.resample(inputBlock, inputFrames, outputBlock);
+        inputFrames = 0;
         if (outDataLine == null) {
             return;
         }
-        if (startT == 0) {
-            startT = System.nanoTime();
-        }
-        samplesSunk++;
-        if (buffer.writeAvailableSamples() < 1) {
-            int maxSamples = outDataLine.available() / 4;
-            if (maxSamples > 0) {
-                int availableSamples = buffer.readAvailableSamples();
-                int samples = min(maxSamples, availableSamples);
-                long now = System.nanoTime();
-                long dt = now - startT;
-                long ssps = samplesSunk * Utils.NANOS_PER_SECOND / dt;
-                //logger.debug(Logger.Component.VSU, "Writing samples: max=%d, avail=%d, samples=%d, samples sunk/s=%d", maxSamples, availableSamples, samples, ssps);
-                if (dt > Utils.NANOS_PER_SECOND * 2) {
-                    startT = now;
-                    samplesSunk = 0;
+        overruns += frames - ring.write(outputBlock, frames);
+    }
+
+    private void drain() {
+        short[] frames = new short[WRITE_CHUNK_FRAMES * 2];
+        byte[] bytes = new byte[WRITE_CHUNK_FRAMES * BYTES_PER_FRAME];
+        ShortBuffer samples = ByteBuffer.wrap(bytes).order(ByteOrder.nativeOrder()).asShortBuffer();
+        boolean dry = false;
+        while (running) {
+            int count = ring.read(frames, WRITE_CHUNK_FRAMES);
+            if (count == 0) {
+                if (!dry && outDataLine.available() >= outDataLine.getBufferSize()) {
+                    underruns++;
+                    dry = true;
                 }
-                buffer.readTo(outDataLine::write, samples);
-            } else {
-                //logger.warning(Logger.Component.VSU, "Buffer overflow! dropping a sample :(");
-                return;
+                LockSupport.parkNanos(this, IDLE_PARK_NS);
+                continue;
             }
+            dry = false;
+            samples.clear();
+            samples.put(frames, 0, count * 2);
+            // blocks until the line has room, which paces this thread at the device's rate
+            outDataLine.write(bytes, 0, count * BYTES_PER_FRAME);
         }
-        buffer.writeSample((char) toSignedSample(left), (char) toSignedSample(right));
     }
 
-    private int toSignedSample(int unsigned) {
-        return unsigned /*- Utils.mask(OUT_BITS - 1)*/;
+    /**
+     * Stops the audio thread and waits for it to finish, after which the counters no longer change.
+     */
+    public void stop() {
+        running = false;
+        if (writer != null) {
+            LockSupport.unpark(writer);
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Frames waiting in the ring for the audio thread, 0 without an output line.
+     */
+    public int getBufferedFrames() {
+        return ring == null ? 0 : ring.size();
+    }
+
+    public int getBufferCapacity() {
+        return ring == null ? 0 : ring.capacity();
+    }
+
+    /**
+     * See {@link Resampler#setRateAdjustment(int)}. Must be called from the thread that produces samples.
+     */
+    public void setRateAdjustment(int ppm) {
+        if (resampler != null) {
+            resampler.setRateAdjustment(ppm);
+        }
+    }
+
+    /**
+     * Times the output line ran dry because the emulation did not produce samples fast enough.
+     */
+    public long getUnderruns() {
+        return underruns;
+    }
+
+    /**
+     * Frames dropped because the ring was full.
+     */
+    public long getOverruns() {
+        return overruns;
     }
 
 }
@@ -29,7 +29,9 @@ public class ForwardingLogger implements Logger {
     @Override
     public void log(Component component, Level level, String format, Object... args) {
         if (destination == null) {
-            delayedMessages.add(new Message(component, level, format, args));
+            if (LogLevels.isEnabled(component, level)) {
+                delayedMessages.add(new Message(component, level, format, args));
+            }
         } else {
             destination.log(component, level, format, args);
         }
@@ -38,7 +40,7 @@ public class ForwardingLogger implements Logger {
     @Override
     public boolean isLevelEnabled(Component component, Level level) {
         if (destination == null) {
-            return true;
+            return LogLevels.isEnabled(component, level);
         }
         return destination.isLevelEnabled(component, level);
     }
@@ -0,0 +1,84 @@
+package gd.twohundred.jvb;
+
+import gd.twohundred.jvb.components.CartridgeRAM;
+import gd.twohundred.jvb.components.CartridgeROM;
+import gd.twohundred.jvb.components.VirtualBoy;
+import gd.twohundred.jvb.components.cpu.CPU;
+import gd.twohundred.jvb.components.interfaces.AudioOut;
+import gd.twohundred.jvb.components.vip.VirtualImageProcessor;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static gd.twohundred.jvb.Utils.NANOS_PER_SECOND;
+import static java.lang.Long.min;
+
+/**
+ * Runs the emulation unthrottled without any window, sound or keyboard and reports its throughput.
+ */
+public class HeadlessRunner {
+    private final VirtualBoy virtualBoy;
+    private final ScriptedInputProvider inputProvider;
+    private long cycles;
+    // screen updates, the VIP sends one left/right pair per display frame
+    private long presentedFrames;
+
+    public HeadlessRunner(CartridgeROM rom, AudioOut audioOut, ScriptedInputProvider inputProvider, Logger logger) {
+        this.inputProvider = inputProvider;
+        virtualBoy = new VirtualBoy((left, right, debugDrawer) -> presentedFrames++, audioOut, inputProvider, rom, new CartridgeRAM(), logger);
+        virtualBoy.reset();
+    }
+
+    public VirtualBoy getVirtualBoy() {
+        return virtualBoy;
+    }
+
+    /**
+     * Emulates up to {@code targetCycles} more cycles, one frame at a time so that scripted inputs change on frame
+     * boundaries. Stops early if the CPU halts.
+     */
+    private void run(long targetCycles) {
+        long end = cycles + targetCycles;
+        while (cycles < end && !virtualBoy.isHalted()) {
+            inputProvider.setFrame(cycles / VirtualImageProcessor.FRAME_PERIOD);
+            long frameEnd = (cycles / VirtualImageProcessor.FRAME_PERIOD + 1) * VirtualImageProcessor.FRAME_PERIOD;
+            cycles += virtualBoy.tick(min(frameEnd, end) - cycles);
+        }
+    }
+
+    public void benchmark(long warmupCycles, long measuredCycles, PrintStream out) {
+        run(warmupCycles);
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean allocations = null;
+        if (threads instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()) {
+            allocations = (com.sun.management.ThreadMXBean) threads;
+        }
+        long threadId = Thread.currentThread().getId();
+        long startCycles = cycles;
+        long startInstructions = virtualBoy.getExecutedInstructions();
+        long startPresented = presentedFrames;
+        long startAllocated = allocations != null ? allocations.getThreadAllocatedBytes(threadId) : 0;
+        long startT = System.nanoTime();
+
+        run(measuredCycles);
+
+        long elapsed = System.nanoTime() - startT;
+        long allocated = allocations != null ? allocations.getThreadAllocatedBytes(threadId) - startAllocated : -1;
+        long ranCycles = cycles - startCycles;
+        double seconds = (double) elapsed / NANOS_PER_SECOND;
+        double emulatedSeconds = (double) ranCycles / CPU.CLOCK_HZ;
+        out.printf("Emulated %.2fs (%d frames) in %.2fs: %.2fx real time%s%n", emulatedSeconds,
+                ranCycles / VirtualImageProcessor.FRAME_PERIOD, seconds, emulatedSeconds / seconds,
+                virtualBoy.isHalted() ? " (halted)" : "");
+        out.printf("  cycles/s:       %,.0f%n", ranCycles / seconds);
+        out.printf("  instructions/s: %,.0f%n", (virtualBoy.getExecutedInstructions() - startInstructions) / seconds);
+        out.printf("  frames/s:       %.1f emulated, %.1f presented%n",
+                (double) ranCycles / VirtualImageProcessor.FRAME_PERIOD / seconds, (presentedFrames - startPresented) / seconds);
+        if (allocated >= 0) {
+            out.printf("  allocation:     %,.1f KB/s (%,d bytes)%n", allocated / 1024.0 / seconds, allocated);
+        } else {
+            out.printf("  allocation:     not supported by this JVM%n");
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package gd.twohundred.jvb;
+
+import gd.twohundred.jvb.Logger.Component;
+import gd.twohundred.jvb.Logger.Level;
+
+import java.util.Arrays;
+
+/**
+ * Most verbose level that may be enabled for each component. Checked by the {@link Logger} helpers before any
+ * argument array is built; the logger itself still does the precise check.
+ */
+public final class LogLevels {
+    public static final boolean DEBUG_LOGGING = true;
+    private static final int[] levels = new int[Component.values().length];
+
+    static {
+        Arrays.fill(levels, Level.Info.ordinal());
+    }
+
+    private LogLevels() {
+    }
+
+    public static boolean isEnabled(Component component, Level level) {
+        if (!DEBUG_LOGGING && level == Level.Debug) {
+            return false;
+        }
+        return levels[component.ordinal()] >= level.ordinal();
+    }
+
+    public static void set(Component component, Level level) {
+        levels[component.ordinal()] = level.ordinal();
+    }
+}
@@ -30,16 +30,94 @@ public interface Logger {
         Debug
     }
 
+    default void debug(Component component, String format) {
+        if (LogLevels.isEnabled(component, Debug)) {
+            log(component, Debug, format);
+        }
+    }
+
+    default void debug(Component component, String format, Object arg0) {
+        if (LogLevels.isEnabled(component, Debug)) {
+            log(component, Debug, format, arg0);
+        }
+    }
+
+    default void debug(Component component, String format, Object arg0, Object arg1) {
+        if (LogLevels.isEnabled(component, Debug)) {
+            log(component, Debug, format, arg0, arg1);
+        }
+    }
+
+    default void debug(Component component, String format, Object arg0, Object arg1, Object arg2) {
+        if (LogLevels.isEnabled(component, Debug)) {
+            log(component, Debug, format, arg0, arg1, arg2);
+        }
+    }
+
     default void debug(Component component, String format, Object... args) {
-        log(component, Debug, format, args);
+        if (LogLevels.isEnabled(component, Debug)) {
+            log(component, Debug, format, args);
+        }
+    }
+
+    default void info(Component component, String format) {
+        if (LogLevels.isEnabled(component, Info)) {
+            log(component, Info, format);
+        }
+    }
+
+    default void info(Component component, String format, Object arg0) {
+        if (LogLevels.isEnabled(component, Info)) {
+            log(component, Info, format, arg0);
+        }
+    }
+
+    default void info(Component component, String format, Object arg0, Object arg1) {
+        if (LogLevels.isEnabled(component, Info)) {
+            log(component, Info, format, arg0, arg1);
+        }
+    }
+
+    default void info(Component component, String format, Object arg0, Object arg1, Object arg2) {
+        if (LogLevels.isEnabled(component, Info)) {
+            log(component, Info, format, arg0, arg1, arg2);
+        }
     }
 
     default void info(Component component, String format, Object... args) {
-        log(component, Info, format, args);
+        if (LogLevels.isEnabled(component, Info)) {
+            log(component, Info, format, args);
+        }
+    }
+
+    default void warning(Component component, String format) {
+        if (LogLevels.isEnabled(component, Warning)) {
+            log(component, Warning, format);
+        }
+    }
+
+    default void warning(Component component, String format, Object arg0) {
+        if (LogLevels.isEnabled(component, Warning)) {
+            log(component, Warning, format, arg0);
+        }
+    }
+
+    default void warning(Component component, String format, Object arg0, Object arg1) {
+        if (LogLevels.isEnabled(component, Warning)) {
+            log(component, Warning, format, arg0, arg1);
+        }
+    }
+
+    default void warning(Component component, String format, Object arg0, Object arg1, Object arg2) {
+        if (LogLevels.isEnabled(component, Warning)) {
+            log(component, Warning, format, arg0, arg1, arg2);
+        }
     }
 
     default void warning(Component component, String format, Object... args) {
-        log(component, Warning, format, args);
+        if (LogLevels.isEnabled(component, Warning)) {
+            log(component, Warning, format, args);
+        }
     }
 
     default void error(Component component, String format, Object... args) {
@@ -1,19 +1,19 @@
 package gd.twohundred.jvb;
 
+import gd.twohundred.jvb.audioutils.Resampler;
 import gd.twohundred.jvb.components.CartridgeRAM;
 import gd.twohundred.jvb.components.CartridgeROM;
 import gd.twohundred.jvb.components.Debugger;
 import gd.twohundred.jvb.components.VirtualBoy;
-import gd.twohundred.jvb.components.cpu.CPU;
+import gd.twohundred.jvb.components.interfaces.AudioOut;
+import gd.twohundred.jvb.components.vip.VirtualImageProcessor;
 import picocli.CommandLine;
 
 import java.awt.*;
 import java.io.IOException;
 import java.nio.file.Path;
-import java.util.concurrent.locks.LockSupport;
 
 import static gd.twohundred.jvb.Logger.Component.Misc;
-import static java.lang.Long.min;
 
 public class Main {
     @CommandLine.Parameters(description = "ROM file to execute", paramLabel = "ROM")
@@ -31,14 +31,33 @@ public class Main {
     @CommandLine.Option(names = { "--logging" }, description = "Logging configuration: comma-separated list of <Component>:<Level>. See --list-logging.")
     private String logging;
 
+    @CommandLine.Option(names = { "--deferred-drawing" }, description = "Comma-separated list of game codes (or 'all') for which whole frames are drawn at once when drawing starts. Only safe for games that do not update VRAM while the VIP is drawing.")
+    private String deferredDrawing;
+
+    @CommandLine.Option(names = { "--resampler" }, description = "Audio resampler: 'linear' (default) or 'polyphase' (windowed sinc, less aliasing).")
+    private String resampler = "linear";
+
+    @CommandLine.Option(names = { "--headless" }, description = "Run unthrottled without window, sound or keyboard and report throughput")
+    private boolean headless = false;
+
+    @CommandLine.Option(names = { "--frames" }, description = "Frames to run in --headless mode (default: 3000)")
+    private Long frames;
+
+    @CommandLine.Option(names = { "--cycles" }, description = "CPU cycles to run in --headless mode, instead of --frames")
+    private Long cycles;
+
+    @CommandLine.Option(names = { "--warmup-frames" }, description = "Frames to run in --headless mode before measuring (default: 0)")
+    private long warmupFrames = 0;
+
+    @CommandLine.Option(names = { "--input-script" }, description = "Inputs for --headless mode: comma-separated list of <frame>:<Input>+<Input>..., each holding those inputs from that frame on")
+    private String inputScript = "";
+
+    @CommandLine.Option(names = { "--record-audio" }, description = "File to write the raw audio of --headless mode to (16-bit little-endian stereo at 41667Hz)")
+    private Path recordAudioPath;
+
     @CommandLine.Option(names = { "--list-logging" }, help = true, description = "List logging components and levels")
     private boolean listLogging = false;
 
-    private static final long NS_PER_CYCLES = Utils.NANOS_PER_SECOND / CPU.CLOCK_HZ;
-    private static final long TARGET_MACRO_TICK_PER_SECOND = 100;
-    private static final long TARGET_GRANULARITY_NS = Utils.NANOS_PER_SECOND / TARGET_MACRO_TICK_PER_SECOND;
-    private static final long MAX_CYCLES_PER_MACRO_TICK = TARGET_GRANULARITY_NS / NS_PER_CYCLES;
-
     public static void main(String... args) throws IOException {
         Main m = new Main();
         try {
@@ -71,6 +90,30 @@ public class Main {
         if (pauseOnStart && !useDebugger) {
             throw new CommandLine.ParameterException(commandLine, "--paused can not be used without --debugger");
         }
+        try {
+            getResamplerKind();
+        } catch (IllegalArgumentException e) {
+            throw new CommandLine.ParameterException(commandLine, "Unknown --resampler: '" + resampler + "'");
+        }
+        if (headless) {
+            if (useDebugger) {
+                throw new CommandLine.ParameterException(commandLine, "--headless can not be used with --debugger");
+            }
+            if (frames != null && cycles != null) {
+                throw new CommandLine.ParameterException(commandLine, "--frames and --cycles can not be used together");
+            }
+            try {
+                new ScriptedInputProvider(inputScript);
+            } catch (IllegalArgumentException e) {
+                throw new CommandLine.ParameterException(commandLine, "Invalid --input-script: " + e.getMessage());
+            }
+        } else if (frames != null || cycles != null || warmupFrames != 0 || !inputScript.isEmpty() || recordAudioPath != null) {
+            throw new CommandLine.ParameterException(commandLine, "--frames, --cycles, --warmup-frames, --input-script and --record-audio require --headless");
+        }
+    }
+
+    private Resampler.Kind getResamplerKind() {
+        return Resampler.Kind.valueOf(resampler.toUpperCase());
     }
 
     private void setLoggingLevels(LevelLogger logger) {
@@ -105,13 +148,33 @@ public class Main {
         }
     }
 
+    private boolean isDeferredDrawing(CartridgeROM rom) {
+        if (deferredDrawing == null) {
+            return false;
+        }
+        String gameCode = rom.getGameCode().trim();
+        for (String code : deferredDrawing.split(",")) {
+            if (code.trim().equals("all") || code.trim().equals(gameCode)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private void run() throws IOException {
         if (listLogging) {
             listLogging();
             return;
         }
+        if (headless) {
+            runHeadless();
+            return;
+        }
         MainWindow mainWindow = new MainWindow();
         Debugger debugger = null;
+        PresentingScreen screen = null;
+        DefaultAudioOut audioOut = null;
+        SyncController sync = null;
         ForwardingLogger logger = new ForwardingLogger();
         try {
             mainWindow.setVisible(true);
@@ -120,9 +183,11 @@ public class Main {
             mainWindow.setFocusable(true);
             mainWindow.addKeyListener(inputProvider);
             KeyboardFocusManager.getCurrentKeyboardFocusManager().addKeyEventPostProcessor(inputProvider);
-            DefaultAudioOut audioOut = new DefaultAudioOut(logger);
-            VirtualBoy virtualBoy = new VirtualBoy(mainWindow.getScreen(), audioOut, inputProvider, rom, new CartridgeRAM(), logger);
+            audioOut = new DefaultAudioOut(logger, getResamplerKind());
+            screen = new PresentingScreen(mainWindow.getScreen());
+            VirtualBoy virtualBoy = new VirtualBoy(screen, audioOut, inputProvider, rom, new CartridgeRAM(), logger);
             virtualBoy.reset();
+            virtualBoy.setDeferredDrawing(isDeferredDrawing(rom));
             if (useDebugger) {
                 debugger = new Debugger();
                 setLoggingLevels(debugger);
@@ -137,23 +202,13 @@ public class Main {
                 setLoggingLevels(stdLogger);
                 logger.setDestination(stdLogger);
             }
-            long startT = System.nanoTime();
+            sync = new SyncController(audioOut);
             long cycles = 0;
             while (!Thread.interrupted() && mainWindow.isOpen() && !virtualBoy.isHalted()) {
-                long t = System.nanoTime();
-                long clockT = t - startT;
-                long simulationT = cycles * NS_PER_CYCLES;
-
-                long missingTime = clockT - simulationT;
-                if (missingTime > 0) {
-                    long missingCycles = missingTime / NS_PER_CYCLES;
-                    missingCycles = min(missingCycles, MAX_CYCLES_PER_MACRO_TICK);
-                    //logger.warning(Misc, "Missing cycles: %d", missingCycles);
-                    //System.out.println(missingCycles + " " +  missingTime / NS_PER_CYCLES);
-                    long cyclesDone = virtualBoy.tick(missingCycles);
-                    cycles += cyclesDone;
-                } else if (-missingTime > 10000) {
-                    LockSupport.parkNanos(-missingTime);
+                long missingCycles = sync.getCyclesToRun(cycles);
+                if (missingCycles > 0) {
+                    cycles += virtualBoy.tick(missingCycles);
+                    sync.updateAudioRate();
                 }
             }
 //            while (!Thread.interrupted() && mainWindow.isOpen() && !virtualBoy.isHalted()) {
@@ -161,13 +216,43 @@ public class Main {
 //            }
             logger.info(Misc, "Bye :)");
         } finally {
+            if (screen != null) {
+                screen.stop();
+            }
+            if (audioOut != null) {
+                audioOut.stop();
+            }
             if (debugger != null) {
                 debugger.exit();
             }
         }
+        // printed once the debugger gave the terminal back and the screen and audio threads are done
+        System.out.printf("Frames: %d presented, %d dropped, %d late%n", screen.getPresentedFrames(), screen.getDroppedFrames(), screen.getLateFrames());
+        System.out.printf("Audio: %d underruns, %d overruns, rate adjustment %d ppm%n", audioOut.getUnderruns(), audioOut.getOverruns(), sync.getRateAdjustment());
+        System.out.printf("Skipped %d ms behind real time%n", sync.getSkippedNs() / 1_000_000);
         System.exit(0);
     }
 
+    private void runHeadless() throws IOException {
+        StdLogger logger = new StdLogger();
+        setLoggingLevels(logger);
+        CartridgeROM rom = new CartridgeROM(cartridgePath, logger);
+        RecordingAudioOut recordingAudioOut = recordAudioPath != null ? new RecordingAudioOut(recordAudioPath) : null;
+        try {
+            AudioOut audioOut = recordingAudioOut != null ? recordingAudioOut : (left, right) -> {
+            };
+            HeadlessRunner runner = new HeadlessRunner(rom, audioOut, new ScriptedInputProvider(inputScript), logger);
+            runner.getVirtualBoy().setDeferredDrawing(isDeferredDrawing(rom));
+            long measuredCycles = cycles != null ? cycles : (frames != null ? frames : 3000) * VirtualImageProcessor.FRAME_PERIOD;
+            runner.benchmark(warmupFrames * VirtualImageProcessor.FRAME_PERIOD, measuredCycles, System.out);
+        } finally {
+            if (recordingAudioOut != null) {
+                recordingAudioOut.close();
+                logger.info(Misc, "Recorded %d audio samples to %s", recordingAudioOut.getSamples(), recordAudioPath);
+            }
+        }
+    }
+
     private void listLogging() {
         System.out.println("Components:");
         for (Logger.Component component : Logger.Component.values()) {
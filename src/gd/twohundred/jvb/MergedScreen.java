@@ -9,6 +9,7 @@ import java.awt.image.DataBufferInt;
 
 public class MergedScreen extends Canvas implements Screen {
     private static final int SCALE;
+    private static final int MERGE_STRIP_WIDTH = 16;
     private final BufferedImage bufferedImage = new BufferedImage(Screen.WIDTH, Screen.HEIGHT, BufferedImage.TYPE_INT_RGB);
     private final int[] imageData = ((DataBufferInt) bufferedImage.getRaster().getDataBuffer()).getData();
 
@@ -30,11 +31,7 @@ public class MergedScreen extends Canvas implements Screen {
             createBufferStrategy(2);
             bufferStrategy = getBufferStrategy();
         }
-        for (int row = 0; row < Screen.HEIGHT; row++) {
-            for (int col = 0; col < Screen.WIDTH; col++) {
-                imageData[col + Screen.WIDTH * row] = (left.getPixel(row, col) & 0xff) << 16 | (right.getPixel(row, col) & 0xff);
-            }
-        }
+        merge(left, right, imageData);
         Graphics g = bufferStrategy.getDrawGraphics();
         g.drawImage(bufferedImage, 0, 0, Screen.WIDTH * SCALE, Screen.HEIGHT * SCALE, null);
         if (debugDrawer != null) {
@@ -43,4 +40,22 @@ public class MergedScreen extends Canvas implements Screen {
         g.dispose();
         bufferStrategy.show();
     }
+
+    /**
+     * Packs the left eye in red and the right eye in blue into a row-major image. The column-major frames are transposed
+     * in strips of columns so that the source columns of a strip stay in cache while walking down its rows.
+     */
+    static void merge(RenderedFrame left, RenderedFrame right, int[] image) {
+        byte[] leftData = left.getData();
+        byte[] rightData = right.getData();
+        for (int stripCol = 0; stripCol < Screen.WIDTH; stripCol += MERGE_STRIP_WIDTH) {
+            for (int row = 0; row < Screen.HEIGHT; row++) {
+                int imageAddr = stripCol + Screen.WIDTH * row;
+                int frameAddr = row + stripCol * Screen.HEIGHT;
+                for (int i = 0; i < MERGE_STRIP_WIDTH; i++, frameAddr += Screen.HEIGHT) {
+                    image[imageAddr + i] = (leftData[frameAddr] & 0xff) << 16 | (rightData[frameAddr] & 0xff);
+                }
+            }
+        }
+    }
 }
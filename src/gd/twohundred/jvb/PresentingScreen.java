@@ -0,0 +1,105 @@
+package gd.twohundred.jvb;
+
+import gd.twohundred.jvb.components.interfaces.Screen;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static gd.twohundred.jvb.Utils.NANOS_PER_SECOND;
+
+/**
+ * Presents frames to another screen from a dedicated thread. The emulation thread copies each frame pair into a triple
+ * buffer and never waits for the presenter: when presentation falls behind, unpresented frames are replaced by newer ones.
+ */
+public class PresentingScreen implements Screen {
+    private static final int SLOT_MASK = 0b11;
+    // set on the shared slot index when it holds a frame that was not presented yet
+    private static final int FRESH = 0b100;
+    private static final long FRAME_PERIOD_NS = NANOS_PER_SECOND / DISPLAY_REFRESH_RATE_HZ;
+
+    private final Screen destination;
+    private final RenderedFrame[] lefts = new RenderedFrame[3];
+    private final RenderedFrame[] rights = new RenderedFrame[3];
+    private final DebugDrawer[] debugDrawers = new DebugDrawer[3];
+    private final long[] publishTimes = new long[3];
+    private final AtomicInteger shared = new AtomicInteger(1);
+    private final Thread presenter;
+    private int back = 0;
+    private int front = 2;
+
+    private volatile boolean running = true;
+    private volatile long presentedFrames;
+    private volatile long droppedFrames;
+    private volatile long lateFrames;
+
+    public PresentingScreen(Screen destination) {
+        this.destination = destination;
+        for (int i = 0; i < 3; i++) {
+            lefts[i] = new RenderedFrame();
+            rights[i] = new RenderedFrame();
+        }
+        presenter = new Thread(this::present, "Presenter");
+        presenter.setDaemon(true);
+        presenter.start();
+    }
+
+    @Override
+    public void update(RenderedFrame left, RenderedFrame right, DebugDrawer debugDrawer) {
+        System.arraycopy(left.getData(), 0, lefts[back].getData(), 0, left.getData().length);
+        System.arraycopy(right.getData(), 0, rights[back].getData(), 0, right.getData().length);
+        debugDrawers[back] = debugDrawer;
+        publishTimes[back] = System.nanoTime();
+        int previous = shared.getAndSet(back | FRESH);
+        if ((previous & FRESH) != 0) {
+            droppedFrames++;
+        }
+        back = previous & SLOT_MASK;
+        LockSupport.unpark(presenter);
+    }
+
+    private void present() {
+        while (running) {
+            if ((shared.get() & FRESH) == 0) {
+                LockSupport.park(this);
+                continue;
+            }
+            front = shared.getAndSet(front) & SLOT_MASK;
+            destination.update(lefts[front], rights[front], debugDrawers[front]);
+            if (System.nanoTime() - publishTimes[front] > FRAME_PERIOD_NS) {
+                lateFrames++;
+            }
+            presentedFrames++;
+        }
+    }
+
+    /**
+     * Stops the presenter thread and waits for it to finish, after which the counters no longer change.
+     */
+    public void stop() {
+        running = false;
+        LockSupport.unpark(presenter);
+        try {
+            presenter.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getPresentedFrames() {
+        return presentedFrames;
+    }
+
+    /**
+     * Frames replaced by a newer one before the presenter got to them.
+     */
+    public long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    /**
+     * Presented frames that finished presenting more than a display period after they were produced.
+     */
+    public long getLateFrames() {
+        return lateFrames;
+    }
+}
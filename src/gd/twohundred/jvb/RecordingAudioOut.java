@@ -0,0 +1,48 @@
+package gd.twohundred.jvb;
+
+import gd.twohundred.jvb.components.interfaces.AudioOut;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes VSU output as raw 16-bit little-endian stereo PCM at {@link AudioOut#OUTPUT_SAMPLING_DECIHZ}, scaled the same
+ * way as {@link DefaultAudioOut} before resampling.
+ */
+public class RecordingAudioOut implements AudioOut, Closeable {
+    private final OutputStream out;
+    private long samples;
+
+    public RecordingAudioOut(Path path) throws IOException {
+        out = new BufferedOutputStream(Files.newOutputStream(path), 1 << 16);
+    }
+
+    @Override
+    public void update(int left, int right) {
+        int scaledSampleLeft = left << (16 - AudioOut.OUTPUT_BITS - 1);
+        int scaledSampleRight = right << (16 - AudioOut.OUTPUT_BITS - 1);
+        try {
+            out.write(scaledSampleLeft);
+            out.write(scaledSampleLeft >> 8);
+            out.write(scaledSampleRight);
+            out.write(scaledSampleRight >> 8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        samples++;
+    }
+
+    public long getSamples() {
+        return samples;
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
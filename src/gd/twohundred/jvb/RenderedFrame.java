@@ -24,6 +24,13 @@ public class RenderedFrame {
         data[addr] = intensity;
     }
 
+    /**
+     * The intensities, column by column.
+     */
+    public byte[] getData() {
+        return data;
+    }
+
     public void clear() {
         Arrays.fill(data, (byte) 0);
     }
@@ -0,0 +1,47 @@
+package gd.twohundred.jvb;
+
+import gd.twohundred.jvb.components.interfaces.InputProvider;
+
+/**
+ * Replays inputs by frame. A script is a comma-separated list of {@code <frame>:<Input>+<Input>...} entries, each
+ * setting the inputs held from that frame on; {@code <frame>:} releases everything, e.g. {@code 100:Start,105:,300:A}.
+ */
+public class ScriptedInputProvider implements InputProvider {
+    private final long[] frames;
+    private final int[] held;
+    private int current = -1;
+    private int currentHeld;
+
+    public ScriptedInputProvider(String script) {
+        String[] entries = script.isEmpty() ? new String[0] : script.split(",");
+        frames = new long[entries.length];
+        held = new int[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            String entry = entries[i].trim();
+            int idx = entry.indexOf(':');
+            if (idx < 0) {
+                throw new IllegalArgumentException("Expected <frame>:<inputs> but got '" + entry + "'");
+            }
+            frames[i] = Long.parseLong(entry.substring(0, idx));
+            if (i > 0 && frames[i] < frames[i - 1]) {
+                throw new IllegalArgumentException("Frames are not in order at '" + entry + "'");
+            }
+            String inputs = entry.substring(idx + 1);
+            for (String input : inputs.isEmpty() ? new String[0] : inputs.split("\\+")) {
+                held[i] |= 1 << Inputs.valueOf(input).offset();
+            }
+        }
+    }
+
+    public void setFrame(long frame) {
+        while (current + 1 < frames.length && frames[current + 1] <= frame) {
+            current++;
+        }
+        currentHeld = current < 0 ? 0 : held[current];
+    }
+
+    @Override
+    public boolean read(Inputs inputs) {
+        return (currentHeld & (1 << inputs.offset())) != 0;
+    }
+}
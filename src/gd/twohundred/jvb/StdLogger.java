@@ -12,7 +12,7 @@ public class StdLogger implements LevelLogger {
 
     public StdLogger() {
         for (Component c : Component.values()) {
-            levels.put(c, Level.Warning);
+            setLevel(c, Level.Warning);
         }
     }
 
@@ -37,5 +37,6 @@ public class StdLogger implements LevelLogger {
     @Override
     public void setLevel(Component component, Level level) {
         levels.put(component, level);
+        LogLevels.set(component, level);
     }
 }
@@ -0,0 +1,78 @@
+package gd.twohundred.jvb;
+
+import gd.twohundred.jvb.audioutils.Resampler;
+import gd.twohundred.jvb.components.cpu.CPU;
+
+import java.util.concurrent.locks.LockSupport;
+
+import static gd.twohundred.jvb.Utils.NANOS_PER_SECOND;
+import static java.lang.Long.max;
+import static java.lang.Long.min;
+
+/**
+ * Paces emulation on the wall clock and keeps audio latency steady. The audio device drains the ring at its own clock,
+ * so how full the ring is measures the drift between that clock and emulated time: the resampling ratio is nudged in
+ * proportion to the distance from the target fill level, by at most {@link Resampler#MAX_RATE_ADJUSTMENT_PPM}.
+ */
+public class SyncController {
+    private static final long NS_PER_CYCLES = NANOS_PER_SECOND / CPU.CLOCK_HZ;
+    private static final long MIN_MACRO_TICK_NS = 1_000_000;
+    private static final long MAX_MACRO_TICK_NS = 10_000_000;
+    // emulation further behind than this (debugger, GC, slow host) gives up on catching up
+    private static final long MAX_LAG_NS = 100_000_000;
+    private static final int FILL_SMOOTHING_SHIFT = 4;
+
+    private final DefaultAudioOut audioOut;
+    private final int targetFill;
+    private long startT;
+    private long smoothedFill;
+    private int rateAdjustment;
+    private long skippedNs;
+
+    public SyncController(DefaultAudioOut audioOut) {
+        this.audioOut = audioOut;
+        this.targetFill = audioOut.getBufferCapacity() / 4;
+        this.smoothedFill = (long) targetFill << FILL_SMOOTHING_SHIFT;
+        this.startT = System.nanoTime();
+    }
+
+    /**
+     * Returns how many cycles should be emulated to catch up with the wall clock. If less than a macro tick is due,
+     * parks until it is and returns 0.
+     */
+    public long getCyclesToRun(long cycles) {
+        long missingTime = System.nanoTime() - startT - cycles * NS_PER_CYCLES;
+        if (missingTime > MAX_LAG_NS) {
+            startT += missingTime - MAX_LAG_NS;
+            skippedNs += missingTime - MAX_LAG_NS;
+            missingTime = MAX_LAG_NS;
+        }
+        if (missingTime < MIN_MACRO_TICK_NS) {
+            LockSupport.parkNanos(MIN_MACRO_TICK_NS - missingTime);
+            return 0;
+        }
+        return min(missingTime, MAX_MACRO_TICK_NS) / NS_PER_CYCLES;
+    }
+
+    public void updateAudioRate() {
+        if (targetFill == 0) {
+            return;
+        }
+        smoothedFill += audioOut.getBufferedFrames() - (smoothedFill >> FILL_SMOOTHING_SHIFT);
+        long error = targetFill - (smoothedFill >> FILL_SMOOTHING_SHIFT);
+        long ppm = error * Resampler.MAX_RATE_ADJUSTMENT_PPM / targetFill;
+        rateAdjustment = (int) max(-Resampler.MAX_RATE_ADJUSTMENT_PPM, min(Resampler.MAX_RATE_ADJUSTMENT_PPM, ppm));
+        audioOut.setRateAdjustment(rateAdjustment);
+    }
+
+    public int getRateAdjustment() {
+        return rateAdjustment;
+    }
+
+    /**
+     * Wall-clock time the emulation gave up on because it fell too far behind.
+     */
+    public long getSkippedNs() {
+        return skippedNs;
+    }
+}
@@ -158,4 +158,24 @@ public class Utils {
         }
         return gcd(b, a % b);
     }
+
+    public static int getHalfWordLE(byte[] array, int index) {
+        return (array[index] & 0xff) | (array[index + 1] & 0xff) << 8;
+    }
+
+    public static int getWordLE(byte[] array, int index) {
+        return (array[index] & 0xff) | (array[index + 1] & 0xff) << 8 | (array[index + 2] & 0xff) << 16 | array[index + 3] << 24;
+    }
+
+    public static void setHalfWordLE(byte[] array, int index, short value) {
+        array[index] = (byte) value;
+        array[index + 1] = (byte) (value >> 8);
+    }
+
+    public static void setWordLE(byte[] array, int index, int value) {
+        array[index] = (byte) value;
+        array[index + 1] = (byte) (value >> 8);
+        array[index + 2] = (byte) (value >> 16);
+        array[index + 3] = (byte) (value >> 24);
+    }
 }
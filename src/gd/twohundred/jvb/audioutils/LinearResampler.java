@@ -3,37 +3,65 @@ package gd.twohundred.jvb.audioutils;
 import gd.twohundred.jvb.components.interfaces.AudioOut;
 
 import static gd.twohundred.jvb.Utils.gcd;
+import static gd.twohundred.jvb.audioutils.Resampler.adjustedStep;
+import static gd.twohundred.jvb.audioutils.Resampler.minStep;
 
-public class LinearResampler {
+public class LinearResampler implements Resampler {
     private final int inRate;
     private final int outRate;
+    // inRate with the rate adjustment applied
+    private int step;
     private int lastSampleLeft;
     private int lastSampleRight;
+    // time of the next output sample relative to the latest input sample, in 1/outRate of an input period
     private int currentDelta;
 
     public LinearResampler(int inRate, int outRate) {
         int gcd = gcd(inRate, outRate);
         this.inRate = inRate / gcd;
         this.outRate = outRate / gcd;
+        this.step = this.inRate;
     }
 
     public void in(int inLeft, int inRight, AudioOut out) {
-        if (currentDelta >= 0) {
-            currentDelta -= outRate;
-        } else {
-            while (currentDelta <= -inRate) {
-                out.update(interpolate(lastSampleLeft, inLeft), interpolate(lastSampleRight, inRight));
-                currentDelta += inRate;
-            }
-            int deltaDelta = inRate - outRate;
+        while (currentDelta <= 0) {
             out.update(interpolate(lastSampleLeft, inLeft), interpolate(lastSampleRight, inRight));
-            currentDelta += deltaDelta;
+            currentDelta += step;
         }
+        currentDelta -= outRate;
         lastSampleLeft = inLeft;
         lastSampleRight = inRight;
     }
 
+    @Override
+    public int resample(short[] in, int inFrames, short[] out) {
+        int produced = 0;
+        for (int i = 0; i < inFrames * 2; i += 2) {
+            int inLeft = in[i];
+            int inRight = in[i + 1];
+            while (currentDelta <= 0) {
+                out[produced++] = (short) interpolate(lastSampleLeft, inLeft);
+                out[produced++] = (short) interpolate(lastSampleRight, inRight);
+                currentDelta += step;
+            }
+            currentDelta -= outRate;
+            lastSampleLeft = inLeft;
+            lastSampleRight = inRight;
+        }
+        return produced / 2;
+    }
+
+    @Override
+    public int getMaxOutputFrames(int inFrames) {
+        return (int) ((long) inFrames * outRate / minStep(inRate)) + 1;
+    }
+
+    @Override
+    public void setRateAdjustment(int ppm) {
+        step = adjustedStep(inRate, ppm);
+    }
+
     private int interpolate(int a, int b) {
-        return (b * (outRate + currentDelta) - a * currentDelta) / outRate;
+        return (int) (((long) b * (outRate + currentDelta) - (long) a * currentDelta) / outRate);
     }
 }
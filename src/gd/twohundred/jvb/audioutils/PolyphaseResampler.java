@@ -0,0 +1,120 @@
+package gd.twohundred.jvb.audioutils;
+
+import java.util.Arrays;
+
+import static gd.twohundred.jvb.Utils.gcd;
+import static gd.twohundred.jvb.audioutils.Resampler.adjustedStep;
+import static gd.twohundred.jvb.audioutils.Resampler.minStep;
+
+/**
+ * Windowed-sinc resampler. The filter is precomputed for {@value #PHASES} fractional positions between input samples
+ * and each output frame uses the phase closest below its position. Output lags the input by {@value #TAPS}/2 frames.
+ */
+public class PolyphaseResampler implements Resampler {
+    private static final int TAPS = 16;
+    private static final int PHASES = 256;
+    private static final int COEFFICIENT_BITS = 15;
+    // fraction of the lower Nyquist frequency kept by the low-pass
+    private static final double PASSBAND = 0.9;
+    private static final int HISTORY_FRAMES = TAPS / 2 - 1;
+
+    private final int inRate;
+    private final int outRate;
+    // inRate with the rate adjustment applied
+    private int step;
+    private final int[] coefficients = new int[PHASES * TAPS];
+    // interleaved input frames still within the reach of the filter
+    private short[] window = new short[2 * TAPS * 2];
+    private int windowFrames = HISTORY_FRAMES;
+    // position of the next output frame: index in window plus fraction/outRate
+    private int position = HISTORY_FRAMES;
+    private int fraction;
+
+    public PolyphaseResampler(int inRate, int outRate) {
+        int gcd = gcd(inRate, outRate);
+        this.inRate = inRate / gcd;
+        this.outRate = outRate / gcd;
+        this.step = this.inRate;
+        double cutoff = 0.5 * PASSBAND * Math.min(1.0, (double) outRate / inRate);
+        double[] taps = new double[TAPS];
+        for (int phase = 0; phase < PHASES; phase++) {
+            double sum = 0;
+            for (int k = 0; k < TAPS; k++) {
+                double t = k - HISTORY_FRAMES - (double) phase / PHASES;
+                taps[k] = 2 * cutoff * sinc(2 * cutoff * t) * blackman((t + TAPS / 2.0) / TAPS);
+                sum += taps[k];
+            }
+            // normalize every phase to unit gain so that constant input stays constant
+            int total = 0;
+            int largest = 0;
+            for (int k = 0; k < TAPS; k++) {
+                int coefficient = (int) Math.round(taps[k] / sum * (1 << COEFFICIENT_BITS));
+                coefficients[phase * TAPS + k] = coefficient;
+                total += coefficient;
+                if (coefficient > coefficients[phase * TAPS + largest]) {
+                    largest = k;
+                }
+            }
+            coefficients[phase * TAPS + largest] += (1 << COEFFICIENT_BITS) - total;
+        }
+    }
+
+    private static double sinc(double x) {
+        if (x == 0) {
+            return 1;
+        }
+        return Math.sin(Math.PI * x) / (Math.PI * x);
+    }
+
+    private static double blackman(double x) {
+        return 0.42 - 0.5 * Math.cos(2 * Math.PI * x) + 0.08 * Math.cos(4 * Math.PI * x);
+    }
+
+    @Override
+    public int resample(short[] in, int inFrames, short[] out) {
+        if ((windowFrames + inFrames) * 2 > window.length) {
+            window = Arrays.copyOf(window, Integer.highestOneBit((windowFrames + inFrames) * 2) << 1);
+        }
+        System.arraycopy(in, 0, window, windowFrames * 2, inFrames * 2);
+        windowFrames += inFrames;
+        int produced = 0;
+        while (position + TAPS - HISTORY_FRAMES - 1 < windowFrames) {
+            int c = (int) ((long) fraction * PHASES / outRate) * TAPS;
+            int s = (position - HISTORY_FRAMES) * 2;
+            long left = 0;
+            long right = 0;
+            for (int k = 0; k < TAPS; k++, s += 2) {
+                int coefficient = coefficients[c + k];
+                left += coefficient * window[s];
+                right += coefficient * window[s + 1];
+            }
+            out[produced++] = clamp(left);
+            out[produced++] = clamp(right);
+            fraction += step;
+            while (fraction >= outRate) {
+                fraction -= outRate;
+                position++;
+            }
+        }
+        int consumed = Math.min(position - HISTORY_FRAMES, windowFrames);
+        System.arraycopy(window, consumed * 2, window, 0, (windowFrames - consumed) * 2);
+        windowFrames -= consumed;
+        position -= consumed;
+        return produced / 2;
+    }
+
+    private static short clamp(long accumulator) {
+        long sample = (accumulator + (1 << (COEFFICIENT_BITS - 1))) >> COEFFICIENT_BITS;
+        return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, sample));
+    }
+
+    @Override
+    public int getMaxOutputFrames(int inFrames) {
+        return (int) ((long) inFrames * outRate / minStep(inRate)) + 1;
+    }
+
+    @Override
+    public void setRateAdjustment(int ppm) {
+        step = adjustedStep(inRate, ppm);
+    }
+}
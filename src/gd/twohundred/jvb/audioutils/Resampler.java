@@ -0,0 +1,54 @@
+package gd.twohundred.jvb.audioutils;
+
+/**
+ * Converts blocks of interleaved stereo frames from one sampling rate to another.
+ */
+public interface Resampler {
+    int MAX_RATE_ADJUSTMENT_PPM = 5000;
+
+    /**
+     * Resamples {@code inFrames} frames from {@code in} into {@code out}, which must have room for
+     * {@link #getMaxOutputFrames(int) getMaxOutputFrames(inFrames)} frames, and returns how many frames were written.
+     */
+    int resample(short[] in, int inFrames, short[] out);
+
+    /**
+     * Bound on the frames produced for {@code inFrames} input frames, for any rate adjustment.
+     */
+    int getMaxOutputFrames(int inFrames);
+
+    /**
+     * Produces {@code ppm} parts per million more output frames per input frame (fewer if negative), clamped to
+     * {@link #MAX_RATE_ADJUSTMENT_PPM}.
+     */
+    void setRateAdjustment(int ppm);
+
+    /**
+     * Distance between output frames, in the same unit as {@code inRate}, once adjusted by {@code ppm}.
+     */
+    static int adjustedStep(int inRate, int ppm) {
+        int clamped = Math.max(-MAX_RATE_ADJUSTMENT_PPM, Math.min(MAX_RATE_ADJUSTMENT_PPM, ppm));
+        return Math.max(1, (int) (inRate - (long) inRate * clamped / 1_000_000));
+    }
+
+    static int minStep(int inRate) {
+        return adjustedStep(inRate, MAX_RATE_ADJUSTMENT_PPM);
+    }
+
+    enum Kind {
+        LINEAR {
+            @Override
+            public Resampler create(int inRate, int outRate) {
+                return new LinearResampler(inRate, outRate);
+            }
+        },
+        POLYPHASE {
+            @Override
+            public Resampler create(int inRate, int outRate) {
+                return new PolyphaseResampler(inRate, outRate);
+            }
+        };
+
+        public abstract Resampler create(int inRate, int outRate);
+    }
+}
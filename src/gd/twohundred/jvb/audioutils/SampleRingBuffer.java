@@ -0,0 +1,73 @@
+package gd.twohundred.jvb.audioutils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free ring of stereo 16-bit frames for exactly one producer thread and one consumer thread.
+ */
+public class SampleRingBuffer {
+    private final short[] samples;
+    private final int frameMask;
+    // frame counters, only ever incremented by their owning side
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong read = new AtomicLong();
+
+    public SampleRingBuffer(int minFrames) {
+        int frames = Integer.highestOneBit(Math.max(1, minFrames - 1)) << 1;
+        samples = new short[frames * 2];
+        frameMask = frames - 1;
+    }
+
+    public int capacity() {
+        return frameMask + 1;
+    }
+
+    public int size() {
+        return (int) (written.get() - read.get());
+    }
+
+    /**
+     * Producer side. Returns false and drops the frame if the ring is full.
+     */
+    public boolean write(short left, short right) {
+        long w = written.get();
+        if (w - read.get() > frameMask) {
+            return false;
+        }
+        int index = (int) (w & frameMask) * 2;
+        samples[index] = left;
+        samples[index + 1] = right;
+        written.lazySet(w + 1);
+        return true;
+    }
+
+    /**
+     * Producer side. Copies as many of the {@code frames} interleaved frames as fit and returns how many were copied.
+     */
+    public int write(short[] in, int frames) {
+        long w = written.get();
+        int count = (int) Math.min(frames, capacity() - (w - read.get()));
+        for (int i = 0; i < count; i++) {
+            int index = (int) ((w + i) & frameMask) * 2;
+            samples[index] = in[i * 2];
+            samples[index + 1] = in[i * 2 + 1];
+        }
+        written.lazySet(w + count);
+        return count;
+    }
+
+    /**
+     * Consumer side. Copies up to {@code maxFrames} interleaved frames into {@code out} and returns how many were copied.
+     */
+    public int read(short[] out, int maxFrames) {
+        long r = read.get();
+        int frames = (int) Math.min(maxFrames, written.get() - r);
+        for (int i = 0; i < frames; i++) {
+            int index = (int) ((r + i) & frameMask) * 2;
+            out[i * 2] = samples[index];
+            out[i * 2 + 1] = samples[index + 1];
+        }
+        read.lazySet(r + frames);
+        return frames;
+    }
+}
@@ -8,18 +8,35 @@ import gd.twohundred.jvb.components.interfaces.Resetable;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 
+import static gd.twohundred.jvb.Utils.getHalfWordLE;
+import static gd.twohundred.jvb.Utils.getWordLE;
+import static gd.twohundred.jvb.Utils.setHalfWordLE;
+import static gd.twohundred.jvb.Utils.setWordLE;
+
 public abstract class AbstractRAM implements ReadWriteMemory, Resetable {
     public static final int INIT_VALUE = Integer.getInteger("jvb.ram.init", 0xdeadbeef);
+    // back memories with heap byte[] instead of direct buffers
+    public static final boolean HEAP_BACKED = Boolean.getBoolean("jvb.ram.heap");
     private final ByteBuffer data;
+    private final byte[] array;
 
     public AbstractRAM(int size) {
-        data = ByteBuffer.allocateDirect(size);
-        data.order(ByteOrder.LITTLE_ENDIAN);
+        if (HEAP_BACKED) {
+            data = null;
+            array = new byte[size];
+        } else {
+            data = ByteBuffer.allocateDirect(size);
+            data.order(ByteOrder.LITTLE_ENDIAN);
+            array = null;
+        }
     }
 
     @Override
     public int getByte(int address) {
         int effectiveAddress = getEffectiveAddress(address);
+        if (HEAP_BACKED) {
+            return array[effectiveAddress] & 0xff;
+        }
         try {
             return data.get(effectiveAddress) & 0xff;
         } catch (IndexOutOfBoundsException ioobe) {
@@ -30,6 +47,9 @@ public abstract class AbstractRAM implements ReadWriteMemory, Resetable {
     @Override
     public int getHalfWord(int address) {
         int effectiveAddress = getEffectiveAddress(address);
+        if (HEAP_BACKED) {
+            return getHalfWordLE(array, effectiveAddress);
+        }
         try {
             return data.getShort(effectiveAddress) & 0xffff;
         } catch (IndexOutOfBoundsException ioobe) {
@@ -40,6 +60,9 @@ public abstract class AbstractRAM implements ReadWriteMemory, Resetable {
     @Override
     public int getWord(int address) {
         int effectiveAddress = getEffectiveAddress(address);
+        if (HEAP_BACKED) {
+            return getWordLE(array, effectiveAddress);
+        }
         try {
             return data.getInt(effectiveAddress);
         } catch (IndexOutOfBoundsException ioobe) {
@@ -50,6 +73,10 @@ public abstract class AbstractRAM implements ReadWriteMemory, Resetable {
     @Override
     public void setByte(int address, byte value) {
         int effectiveAddress = getEffectiveAddress(address);
+        if (HEAP_BACKED) {
+            array[effectiveAddress] = value;
+            return;
+        }
         try {
             data.put(effectiveAddress, value);
         } catch (IndexOutOfBoundsException ioobe) {
@@ -60,6 +87,10 @@ public abstract class AbstractRAM implements ReadWriteMemory, Resetable {
     @Override
     public void setHalfWord(int address, short value) {
         int effectiveAddress = getEffectiveAddress(address);
+        if (HEAP_BACKED) {
+            setHalfWordLE(array, effectiveAddress, value);
+            return;
+        }
         try {
             data.putShort(effectiveAddress, value);
         } catch (IndexOutOfBoundsException ioobe) {
@@ -70,6 +101,10 @@ public abstract class AbstractRAM implements ReadWriteMemory, Resetable {
     @Override
     public void setWord(int address, int value) {
         int effectiveAddress = getEffectiveAddress(address);
+        if (HEAP_BACKED) {
+            setWordLE(array, effectiveAddress, value);
+            return;
+        }
         try {
             data.putInt(effectiveAddress, value);
         } catch (IndexOutOfBoundsException ioobe) {
@@ -79,10 +114,24 @@ public abstract class AbstractRAM implements ReadWriteMemory, Resetable {
 
     public abstract int getEffectiveAddress(int address);
 
+    protected ByteBuffer getData() {
+        return data;
+    }
+
+    protected byte[] getArray() {
+        return array;
+    }
+
     @Override
     public void reset() {
-        for (int i = 0; i < data.limit(); i+=4) {
-            data.putInt(INIT_VALUE);
+        if (HEAP_BACKED) {
+            for (int i = 0; i < array.length; i += 4) {
+                setWordLE(array, i, INIT_VALUE);
+            }
+        } else {
+            for (int i = 0; i < data.limit(); i += 4) {
+                data.putInt(i, INIT_VALUE);
+            }
         }
     }
 }
@@ -2,14 +2,23 @@ package gd.twohundred.jvb.components;
 
 import gd.twohundred.jvb.BusError;
 import gd.twohundred.jvb.Logger;
+import gd.twohundred.jvb.components.cpu.InstructionCache;
 import gd.twohundred.jvb.components.cpu.Instructions.AccessWidth;
 import gd.twohundred.jvb.components.interfaces.MappedMemory;
+import gd.twohundred.jvb.components.interfaces.ReadOnlyMemory;
+import gd.twohundred.jvb.components.interfaces.WriteOnlyMemory;
 import gd.twohundred.jvb.components.utils.MappedModules;
 import gd.twohundred.jvb.components.utils.WarningMemory;
 import gd.twohundred.jvb.components.vip.VirtualImageProcessor;
 import gd.twohundred.jvb.components.vsu.VirtualSoundUnit;
 
+import java.nio.ByteBuffer;
+
 import static gd.twohundred.jvb.BusError.Reason.Unmapped;
+import static gd.twohundred.jvb.Utils.getHalfWordLE;
+import static gd.twohundred.jvb.Utils.getWordLE;
+import static gd.twohundred.jvb.Utils.setHalfWordLE;
+import static gd.twohundred.jvb.Utils.setWordLE;
 
 public class Bus extends MappedModules {
     public static final int BUS_SIZE = 0x0800_0000;
@@ -18,50 +27,113 @@ public class Bus extends MappedModules {
     private final VirtualImageProcessor vip;
     private final HardwareControlRegisters controlRegisters;
     private final VirtualSoundUnit vsu;
+    private final EventScheduler scheduler;
     private final Logger logger;
     private final SystemWRAM wram;
     private final WarningMemory cartridgeExtension;
     private Debugger debugger;
+    private InstructionCache instructionCache;
+
+    // plain memory pages are accessed directly through their backing buffer, the others go through their module
+    private static final int PAGE_BITS = 13;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_COUNT = BUS_SIZE >>> PAGE_BITS;
+    private final MappedMemory[] pageModules = new MappedMemory[PAGE_COUNT];
+    // null where the page is unmapped or does not allow that kind of access
+    private final ReadOnlyMemory[] pageReaders = new ReadOnlyMemory[PAGE_COUNT];
+    private final WriteOnlyMemory[] pageWriters = new WriteOnlyMemory[PAGE_COUNT];
+    private final int[] pageSyncMasks = new int[PAGE_COUNT];
+    private final ByteBuffer[] readPageData = new ByteBuffer[PAGE_COUNT];
+    private final ByteBuffer[] writePageData = new ByteBuffer[PAGE_COUNT];
+    private final byte[][] readPageArrays = new byte[PAGE_COUNT][];
+    private final byte[][] writePageArrays = new byte[PAGE_COUNT][];
+    private final int[] pageDataMasks = new int[PAGE_COUNT];
 
-    public Bus(CartridgeROM rom, CartridgeRAM ram, VirtualImageProcessor vip, HardwareControlRegisters controlRegisters, VirtualSoundUnit vsu, Logger logger) {
+    public Bus(CartridgeROM rom, CartridgeRAM ram, VirtualImageProcessor vip, HardwareControlRegisters controlRegisters, VirtualSoundUnit vsu, EventScheduler scheduler, Logger logger) {
         this.rom = rom;
         this.ram = ram;
         this.vip = vip;
         this.controlRegisters = controlRegisters;
         this.vsu = vsu;
+        this.scheduler = scheduler;
         this.logger = logger;
         this.wram = new SystemWRAM();
         cartridgeExtension = new WarningMemory("Cartridge Expansion", 0x04000000, 0x01000000, logger);
-    }
-
-    public static final boolean TRACE_BUS = false;
 
-    protected MappedMemory getMappedModule(int address) {
-        if (address >= CartridgeROM.START) {
-            return rom;
+        int vipSync = scheduler.getMask(vip);
+        for (int pageStart = 0; pageStart < VirtualImageProcessor.MAPPED_SIZE; pageStart += PAGE_SIZE) {
+            // flatten the VIP's own mapping wherever a page belongs to a single VIP module
+            mapPages(pageStart, PAGE_SIZE, vip.getMappedModule(pageStart, PAGE_SIZE), vipSync);
         }
-        if (address >= CartridgeRAM.START) {
-            return ram;
+        mapPages(VirtualSoundUnit.START, VirtualSoundUnit.MAPPED_SIZE, vsu, scheduler.getMask(vsu));
+        mapPages(HardwareControlRegisters.START, HardwareControlRegisters.MAPPED_SIZE, controlRegisters, scheduler.getMask(controlRegisters.getTimer(), controlRegisters.getGamePad()));
+        mapPages(0x04000000, 0x01000000, cartridgeExtension, 0); // TODO ? Cartridge Expansion
+        mapPages(SystemWRAM.START, SystemWRAM.MAPPED_SIZE, wram, 0);
+        mapPageData(SystemWRAM.START, SystemWRAM.MAPPED_SIZE, wram.getData(), wram.getArray(), true);
+        if (ram != null) {
+            mapPages(CartridgeRAM.START, CartridgeRAM.MAX_SIZE, ram, 0);
+            mapPageData(CartridgeRAM.START, CartridgeRAM.MAX_SIZE, ram.getData(), ram.getArray(), true);
         }
-        if (address >= SystemWRAM.START) {
-            return wram;
+        mapPages(CartridgeROM.START, CartridgeROM.MAX_SIZE, rom, 0);
+        mapPageData(CartridgeROM.START, CartridgeROM.MAX_SIZE, rom.getData(), rom.getArray(), false);
+    }
+
+    private void mapPages(int start, int size, MappedMemory module, int syncMask) {
+        for (int page = start >>> PAGE_BITS; page < (start + size) >>> PAGE_BITS; page++) {
+            pageModules[page] = module;
+            pageReaders[page] = module instanceof ReadOnlyMemory ? (ReadOnlyMemory) module : null;
+            pageWriters[page] = module instanceof WriteOnlyMemory ? (WriteOnlyMemory) module : null;
+            pageSyncMasks[page] = syncMask;
         }
-        if (address >= 0x04000000) {
-            return cartridgeExtension; // TODO ? Cartridge Expansion
+    }
+
+    private void mapPageData(int start, int size, ByteBuffer data, byte[] array, boolean writable) {
+        for (int page = start >>> PAGE_BITS; page < (start + size) >>> PAGE_BITS; page++) {
+            readPageData[page] = data;
+            readPageArrays[page] = array;
+            if (writable) {
+                writePageData[page] = data;
+                writePageArrays[page] = array;
+            }
+            pageDataMasks[page] = (array != null ? array.length : data.capacity()) - 1;
         }
-        if (address >= HardwareControlRegisters.START + HardwareControlRegisters.MAPPED_SIZE) {
-            throw new BusError(address, Unmapped); // TODO ? unused
+    }
+
+    public static final boolean TRACE_BUS = false;
+
+    protected MappedMemory getMappedModule(int address) {
+        int page = address >>> PAGE_BITS;
+        syncPage(page);
+        MappedMemory module = pageModules[page];
+        if (module == null) {
+            throw new BusError(address, Unmapped);
         }
-        if (address >= HardwareControlRegisters.START) {
-            return controlRegisters;
+        return module;
+    }
+
+    private ReadOnlyMemory getReader(int address, int page) {
+        syncPage(page);
+        ReadOnlyMemory module = pageReaders[page];
+        if (module == null && pageModules[page] == null) {
+            throw new BusError(address, Unmapped);
         }
-        if (address >= VirtualSoundUnit.START) {
-            return vsu;
+        return module;
+    }
+
+    private WriteOnlyMemory getWriter(int address, int page) {
+        syncPage(page);
+        WriteOnlyMemory module = pageWriters[page];
+        if (module == null && pageModules[page] == null) {
+            throw new BusError(address, Unmapped);
         }
-        if (address >= 0) {
-            return vip;
+        return module;
+    }
+
+    private void syncPage(int page) {
+        int syncMask = pageSyncMasks[page];
+        if (syncMask != 0) {
+            scheduler.sync(syncMask);
         }
-        throw new BusError(address, Unmapped);
     }
 
     @Override
@@ -83,19 +155,70 @@ public class Bus extends MappedModules {
     @Override
     public int getByte(int address) {
         onRead(address, AccessWidth.Byte);
-        return super.getByte(address);
+        int effectiveAddress = address & (BUS_SIZE - 1);
+        int page = effectiveAddress >>> PAGE_BITS;
+        if (AbstractRAM.HEAP_BACKED) {
+            byte[] array = readPageArrays[page];
+            if (array != null) {
+                return array[effectiveAddress & pageDataMasks[page]] & 0xff;
+            }
+        } else {
+            ByteBuffer data = readPageData[page];
+            if (data != null) {
+                return data.get(effectiveAddress & pageDataMasks[page]) & 0xff;
+            }
+        }
+        ReadOnlyMemory module = getReader(effectiveAddress, page);
+        if (module == null) {
+            return handlePermissionException(address);
+        }
+        return module.getByte(effectiveAddress - module.getStart());
     }
 
     @Override
     public int getHalfWord(int address) {
         onRead(address, AccessWidth.HalfWord);
-        return super.getHalfWord(address);
+        int effectiveAddress = (address & ~0b1) & (BUS_SIZE - 1);
+        int page = effectiveAddress >>> PAGE_BITS;
+        if (AbstractRAM.HEAP_BACKED) {
+            byte[] array = readPageArrays[page];
+            if (array != null) {
+                return getHalfWordLE(array, effectiveAddress & pageDataMasks[page]);
+            }
+        } else {
+            ByteBuffer data = readPageData[page];
+            if (data != null) {
+                return data.getShort(effectiveAddress & pageDataMasks[page]) & 0xffff;
+            }
+        }
+        ReadOnlyMemory module = getReader(effectiveAddress, page);
+        if (module == null) {
+            return handlePermissionException(address);
+        }
+        return module.getHalfWord(effectiveAddress - module.getStart());
     }
 
     @Override
     public int getWord(int address) {
         onRead(address, AccessWidth.Word);
-        return super.getWord(address);
+        int effectiveAddress = (address & ~0b11) & (BUS_SIZE - 1);
+        int page = effectiveAddress >>> PAGE_BITS;
+        if (AbstractRAM.HEAP_BACKED) {
+            byte[] array = readPageArrays[page];
+            if (array != null) {
+                return getWordLE(array, effectiveAddress & pageDataMasks[page]);
+            }
+        } else {
+            ByteBuffer data = readPageData[page];
+            if (data != null) {
+                return data.getInt(effectiveAddress & pageDataMasks[page]);
+            }
+        }
+        ReadOnlyMemory module = getReader(effectiveAddress, page);
+        if (module == null) {
+            return handlePermissionException(address);
+        }
+        return module.getWord(effectiveAddress - module.getStart());
     }
 
     private void onRead(int address, AccessWidth width) {
@@ -107,31 +230,98 @@ public class Bus extends MappedModules {
     @Override
     public void setByte(int address, byte value) {
         onWrite(address, value, AccessWidth.Byte);
-        super.setByte(address, value);
+        int effectiveAddress = address & (BUS_SIZE - 1);
+        int page = effectiveAddress >>> PAGE_BITS;
+        if (AbstractRAM.HEAP_BACKED) {
+            byte[] array = writePageArrays[page];
+            if (array != null) {
+                array[effectiveAddress & pageDataMasks[page]] = value;
+                return;
+            }
+        } else {
+            ByteBuffer data = writePageData[page];
+            if (data != null) {
+                data.put(effectiveAddress & pageDataMasks[page], value);
+                return;
+            }
+        }
+        WriteOnlyMemory module = getWriter(effectiveAddress, page);
+        if (module == null) {
+            handlePermissionException(address);
+            return;
+        }
+        module.setByte(effectiveAddress - module.getStart(), value);
     }
 
     @Override
     public void setHalfWord(int address, short value) {
         onWrite(address, value, AccessWidth.HalfWord);
-        super.setHalfWord(address, value);
+        int effectiveAddress = (address & ~0b1) & (BUS_SIZE - 1);
+        int page = effectiveAddress >>> PAGE_BITS;
+        if (AbstractRAM.HEAP_BACKED) {
+            byte[] array = writePageArrays[page];
+            if (array != null) {
+                setHalfWordLE(array, effectiveAddress & pageDataMasks[page], value);
+                return;
+            }
+        } else {
+            ByteBuffer data = writePageData[page];
+            if (data != null) {
+                data.putShort(effectiveAddress & pageDataMasks[page], value);
+                return;
+            }
+        }
+        WriteOnlyMemory module = getWriter(effectiveAddress, page);
+        if (module == null) {
+            handlePermissionException(address);
+            return;
+        }
+        module.setHalfWord(effectiveAddress - module.getStart(), value);
     }
 
     @Override
     public void setWord(int address, int value) {
         onWrite(address, value, AccessWidth.Word);
-        super.setWord(address, value);
+        int effectiveAddress = (address & ~0b11) & (BUS_SIZE - 1);
+        int page = effectiveAddress >>> PAGE_BITS;
+        if (AbstractRAM.HEAP_BACKED) {
+            byte[] array = writePageArrays[page];
+            if (array != null) {
+                setWordLE(array, effectiveAddress & pageDataMasks[page], value);
+                return;
+            }
+        } else {
+            ByteBuffer data = writePageData[page];
+            if (data != null) {
+                data.putInt(effectiveAddress & pageDataMasks[page], value);
+                return;
+            }
+        }
+        WriteOnlyMemory module = getWriter(effectiveAddress, page);
+        if (module == null) {
+            handlePermissionException(address);
+            return;
+        }
+        module.setWord(effectiveAddress - module.getStart(), value);
     }
 
     private void onWrite(int address, int value, AccessWidth width) {
         if (debugger != null) {
             debugger.onWrite(address, value, width);
         }
+        if (instructionCache != null) {
+            instructionCache.invalidate(address, width.getBytes());
+        }
     }
 
     public void attach(Debugger debugger) {
         this.debugger = debugger;
     }
 
+    public void attach(InstructionCache instructionCache) {
+        this.instructionCache = instructionCache;
+    }
+
     CartridgeROM getRom() {
         return rom;
     }
@@ -4,13 +4,16 @@ import gd.twohundred.jvb.Logger;
 import gd.twohundred.jvb.components.interfaces.ReadOnlyMemory;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
 import java.nio.file.Path;
 
 import static gd.twohundred.jvb.Logger.Component.Memory;
+import static gd.twohundred.jvb.Utils.getHalfWordLE;
+import static gd.twohundred.jvb.Utils.getWordLE;
 import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
 import static java.nio.charset.StandardCharsets.US_ASCII;
 import static java.nio.file.StandardOpenOption.READ;
@@ -19,7 +22,8 @@ public class CartridgeROM implements ReadOnlyMemory {
     public static final int MIN_SIZE = 0x400;
     public static final int MAX_SIZE = 0x100_0000;
     public static final int START = 0x07000000;
-    private final MappedByteBuffer cartridgeData;
+    private final ByteBuffer cartridgeData;
+    private final byte[] cartridgeArray;
     private final int addressMask;
 
     public CartridgeROM(Path cartridgePath, Logger logger) throws IOException {
@@ -27,29 +31,52 @@ public class CartridgeROM implements ReadOnlyMemory {
         FileChannel fileChannel = FileChannel.open(cartridgePath, READ);
         long size = fileChannel.size();
         assert size >= MIN_SIZE && size <= MAX_SIZE && Long.bitCount(size) == 1;
-        cartridgeData = fileChannel.map(READ_ONLY, 0, size);
-        cartridgeData.order(ByteOrder.LITTLE_ENDIAN);
+        if (AbstractRAM.HEAP_BACKED) {
+            cartridgeData = null;
+            cartridgeArray = Files.readAllBytes(cartridgePath);
+        } else {
+            cartridgeData = fileChannel.map(READ_ONLY, 0, size);
+            cartridgeData.order(ByteOrder.LITTLE_ENDIAN);
+            cartridgeArray = null;
+        }
         addressMask = (int) (size - 1);
     }
 
     @Override
     public int getByte(int address) {
         int effectiveAddress = address & addressMask;
+        if (AbstractRAM.HEAP_BACKED) {
+            return cartridgeArray[effectiveAddress] & 0xff;
+        }
         return cartridgeData.get(effectiveAddress) & 0xff;
     }
 
     @Override
     public int getHalfWord(int address) {
         int effectiveAddress = address & addressMask;
+        if (AbstractRAM.HEAP_BACKED) {
+            return getHalfWordLE(cartridgeArray, effectiveAddress);
+        }
         return cartridgeData.getShort(effectiveAddress) & 0xffff;
     }
 
     @Override
     public int getWord(int address) {
         int effectiveAddress = address & addressMask;
+        if (AbstractRAM.HEAP_BACKED) {
+            return getWordLE(cartridgeArray, effectiveAddress);
+        }
         return cartridgeData.getInt(effectiveAddress);
     }
 
+    ByteBuffer getData() {
+        return cartridgeData;
+    }
+
+    byte[] getArray() {
+        return cartridgeArray;
+    }
+
     @Override
     public int getStart() {
         return START;
@@ -1,6 +1,7 @@
 package gd.twohundred.jvb.components;
 
 import gd.twohundred.jvb.LevelLogger;
+import gd.twohundred.jvb.LogLevels;
 import gd.twohundred.jvb.Utils;
 import gd.twohundred.jvb.components.cpu.CPU;
 import gd.twohundred.jvb.components.cpu.Instructions.AccessWidth;
@@ -104,9 +105,9 @@ public class Debugger implements ExactlyEmulable, LevelLogger {
         this.log = new ArrayList<>();
         this.levels = new EnumMap<>(Component.class);
         for (Component c : Component.values()) {
-            levels.put(c, Level.Info);
+            setLevel(c, Level.Info);
         }
-        levels.put(Component.Memory, Level.Warning);
+        setLevel(Component.Memory, Level.Warning);
         state = State.Running;
         this.terminal = TerminalBuilder.terminal();
         this.views = new ArrayList<>();
@@ -147,6 +148,7 @@ public class Debugger implements ExactlyEmulable, LevelLogger {
     @Override
     public void setLevel(Component component, Level level) {
         levels.put(component, level);
+        LogLevels.set(component, level);
     }
 
     private KeyMap<Runnable> initKeyMap() {
@@ -0,0 +1,110 @@
+package gd.twohundred.jvb.components;
+
+import gd.twohundred.jvb.components.interfaces.ExactlyEmulable;
+import gd.twohundred.jvb.components.interfaces.Resetable;
+
+import static gd.twohundred.jvb.components.interfaces.ExactlyEmulable.NO_EVENT;
+
+public class EventScheduler implements Resetable {
+    private final ExactlyEmulable[] components;
+    private final long[] syncedCycles;
+    private final long[] deadlines;
+    private long cycles;
+    private long nextDeadline;
+    private boolean synced;
+
+    public EventScheduler(ExactlyEmulable... components) {
+        this.components = components;
+        this.syncedCycles = new long[components.length];
+        this.deadlines = new long[components.length];
+    }
+
+    public void advance(long cycles) {
+        this.cycles += cycles;
+        if (this.cycles >= nextDeadline) {
+            syncDue();
+        }
+    }
+
+    private void syncDue() {
+        long next = NO_EVENT;
+        for (int i = 0; i < components.length; i++) {
+            if (deadlines[i] <= cycles) {
+                catchUp(i);
+                long cyclesUntilNextEvent = components[i].cyclesUntilNextEvent();
+                deadlines[i] = cyclesUntilNextEvent == NO_EVENT ? NO_EVENT : cycles + cyclesUntilNextEvent;
+            }
+            next = Math.min(next, deadlines[i]);
+        }
+        nextDeadline = next;
+    }
+
+    private void catchUp(int i) {
+        long pendingCycles = cycles - syncedCycles[i];
+        if (pendingCycles > 0) {
+            components[i].tickExact(pendingCycles);
+            syncedCycles[i] = cycles;
+            synced = true;
+        }
+    }
+
+    public int getMask(ExactlyEmulable... components) {
+        int mask = 0;
+        for (ExactlyEmulable component : components) {
+            mask |= 1 << indexOf(component);
+        }
+        return mask;
+    }
+
+    private int indexOf(ExactlyEmulable component) {
+        for (int i = 0; i < components.length; i++) {
+            if (components[i] == component) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown component " + component);
+    }
+
+    public void sync(int mask) {
+        for (int i = 0; i < components.length; i++) {
+            if ((mask & (1 << i)) != 0) {
+                catchUp(i);
+                // the component is about to be accessed: re-evaluate its next event once the current instruction is done
+                deadlines[i] = cycles;
+            }
+        }
+        nextDeadline = cycles;
+        synced = true;
+    }
+
+    public void syncAll() {
+        for (int i = 0; i < components.length; i++) {
+            catchUp(i);
+        }
+    }
+
+    public boolean pollSynced() {
+        boolean wasSynced = synced;
+        synced = false;
+        return wasSynced;
+    }
+
+    public long getCyclesUntilNextDeadline() {
+        return nextDeadline - cycles;
+    }
+
+    public long getCycles() {
+        return cycles;
+    }
+
+    @Override
+    public void reset() {
+        cycles = 0;
+        nextDeadline = 0;
+        synced = true;
+        for (int i = 0; i < components.length; i++) {
+            syncedCycles[i] = 0;
+            deadlines[i] = 0;
+        }
+    }
+}
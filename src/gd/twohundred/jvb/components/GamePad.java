@@ -1,5 +1,6 @@
 package gd.twohundred.jvb.components;
 
+import gd.twohundred.jvb.LogLevels;
 import gd.twohundred.jvb.Logger;
 import gd.twohundred.jvb.components.interfaces.ExactlyEmulable;
 import gd.twohundred.jvb.components.interfaces.InputProvider;
@@ -12,6 +13,7 @@ import static gd.twohundred.jvb.Utils.intBit;
 import static gd.twohundred.jvb.Utils.intBits;
 import static gd.twohundred.jvb.Utils.testBit;
 import static gd.twohundred.jvb.Utils.toBinary;
+import static java.lang.Math.max;
 
 public class GamePad implements ExactlyEmulable, InterruptSource {
     private static final int CONTROL_GAME_PAD_INTERRUPT_DISABLE_POS = 7;
@@ -44,7 +46,9 @@ public class GamePad implements ExactlyEmulable, InterruptSource {
     }
 
     public void setControl(byte value) {
-        logger.debug(Logger.Component.GamePad, "Control %s", toBinary(value & 0xff, 8));
+        if (LogLevels.isEnabled(Logger.Component.GamePad, Logger.Level.Debug)) {
+            logger.debug(Logger.Component.GamePad, "Control %s", toBinary(value & 0xff, 8));
+        }
         interruptEnabled = !testBit(value, CONTROL_GAME_PAD_INTERRUPT_DISABLE_POS);
         boolean latchInput = testBit(value, CONTROL_LATCH_GAME_PAD_SIGNAL_POS);
         boolean clock = testBit(value, CONTROL_SOFTWARE_INPUT_CLOCK_SIGNAL_POS);
@@ -140,11 +144,19 @@ public class GamePad implements ExactlyEmulable, InterruptSource {
     }
 
     @Override
-    public Interrupt raised() {
+    public long cyclesUntilNextEvent() {
+        if (!isHardwareReadInProgress()) {
+            return NO_EVENT;
+        }
+        return max(1, (hardwareReadBit + 1L) * HARDWARE_READ_CYCLES_PER_BIT - hardwareReadCycles);
+    }
+
+    @Override
+    public int raised() {
         if (interruptRaised) {
-            return new SimpleInterrupt(Interrupt.InterruptType.GamePad);
+            return Interrupt.InterruptType.GamePad.getMask();
         }
-        return null;
+        return 0;
     }
 
     public boolean isInterruptEnabled() {
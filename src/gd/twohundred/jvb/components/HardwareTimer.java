@@ -157,10 +157,18 @@ public class HardwareTimer implements ReadWriteMemory, ExactlyEmulable, Interrup
     }
 
     @Override
-    public Interrupt raised() {
+    public long cyclesUntilNextEvent() {
+        if (!isTimerEnabled() || !isInterruptEnabled()) {
+            return NO_EVENT;
+        }
+        return (counter + 1L) * getPeriod() - cycleCounter + 1;
+    }
+
+    @Override
+    public int raised() {
         if (interruptRaised) {
-            return new SimpleInterrupt(Interrupt.InterruptType.TimerZero);
+            return Interrupt.InterruptType.TimerZero.getMask();
         }
-        return null;
+        return 0;
     }
 }
@@ -3,13 +3,24 @@ package gd.twohundred.jvb.components;
 import gd.twohundred.jvb.components.interfaces.Interrupt;
 
 public class SimpleInterrupt implements Interrupt {
+    private static final SimpleInterrupt[] INSTANCES = new SimpleInterrupt[InterruptType.values().length];
+
+    static {
+        for (InterruptType type : InterruptType.values()) {
+            INSTANCES[type.ordinal()] = new SimpleInterrupt(type);
+        }
+    }
+
     private final InterruptType type;
-    private Interrupt next;
 
-    public SimpleInterrupt(InterruptType type) {
+    protected SimpleInterrupt(InterruptType type) {
         this.type = type;
     }
 
+    public static SimpleInterrupt get(InterruptType type) {
+        return INSTANCES[type.ordinal()];
+    }
+
     @Override
     public InterruptType getType() {
         return type;
@@ -20,16 +31,6 @@ public class SimpleInterrupt implements Interrupt {
         return type.getBaseExceptionCode();
     }
 
-    @Override
-    public Interrupt getNext() {
-        return next;
-    }
-
-    @Override
-    public void setNext(Interrupt next) {
-        this.next = next;
-    }
-
     @Override
     public String toString() {
         return type.toString();
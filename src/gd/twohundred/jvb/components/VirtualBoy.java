@@ -1,18 +1,21 @@
 package gd.twohundred.jvb.components;
 
+import gd.twohundred.jvb.LogLevels;
 import gd.twohundred.jvb.Logger;
 import gd.twohundred.jvb.components.cpu.CPU;
+import gd.twohundred.jvb.components.cpu.ProgramStatusWord;
 import gd.twohundred.jvb.components.cpu.ProgramStatusWord.ExecutionMode;
 import gd.twohundred.jvb.components.interfaces.AudioOut;
 import gd.twohundred.jvb.components.interfaces.Emulable;
 import gd.twohundred.jvb.components.interfaces.InputProvider;
 import gd.twohundred.jvb.components.interfaces.Interrupt;
 import gd.twohundred.jvb.components.interfaces.Interrupt.InterruptType;
-import gd.twohundred.jvb.components.interfaces.InterruptSource;
 import gd.twohundred.jvb.components.interfaces.Screen;
 import gd.twohundred.jvb.components.vip.VirtualImageProcessor;
 import gd.twohundred.jvb.components.vsu.VirtualSoundUnit;
 
+import static java.lang.Math.min;
+
 public class VirtualBoy implements Emulable {
     public static final String VERSION = "0.1.0";
     private final CPU cpu;
@@ -20,8 +23,27 @@ public class VirtualBoy implements Emulable {
     private final VirtualImageProcessor vip;
     private final VirtualSoundUnit vsu;
     private final GamePad gamePad;
+    private final EventScheduler scheduler;
     private final Logger logger;
     private Debugger debugger;
+    private boolean interruptsRaised;
+
+    private static final int NON_MASKABLE_INTERRUPTS;
+    private static final int[] MASKABLE_INTERRUPTS_BY_LEVEL = new int[16];
+
+    static {
+        int nonMaskable = 0;
+        for (InterruptType type : InterruptType.values()) {
+            if (type.isMaskable()) {
+                for (int level = 0; level <= type.getInterruptLevel(); level++) {
+                    MASKABLE_INTERRUPTS_BY_LEVEL[level] |= type.getMask();
+                }
+            } else {
+                nonMaskable |= type.getMask();
+            }
+        }
+        NON_MASKABLE_INTERRUPTS = nonMaskable;
+    }
 
     public VirtualBoy(Screen screen, AudioOut audioOut, InputProvider inputProvider, CartridgeROM rom, CartridgeRAM ram, Logger logger) {
         this.logger = logger;
@@ -29,8 +51,9 @@ public class VirtualBoy implements Emulable {
         vip = new VirtualImageProcessor(screen, logger);
         vsu = new VirtualSoundUnit(audioOut, logger);
         gamePad = new GamePad(inputProvider, logger);
+        scheduler = new EventScheduler(timer, vip, vsu, gamePad);
         HardwareControlRegisters controlRegisters = new HardwareControlRegisters(timer, gamePad, logger);
-        Bus bus = new Bus(rom, ram, vip, controlRegisters, vsu, logger);
+        Bus bus = new Bus(rom, ram, vip, controlRegisters, vsu, scheduler, logger);
         cpu = new CPU(bus, logger);
     }
 
@@ -41,20 +64,22 @@ public class VirtualBoy implements Emulable {
         }
         long cycles = 0;
         while (cycles < targetCycles) {
-            long actualCycles = cpu.tick(targetCycles);
-            timer.tickExact(actualCycles);
-            vip.tickExact(actualCycles);
-            vsu.tickExact(actualCycles);
-            gamePad.tickExact(actualCycles);
+            long maxCycles = interruptsRaised ? 1 : min(targetCycles - cycles, scheduler.getCyclesUntilNextDeadline());
+            long actualCycles = cpu.tick(maxCycles);
+            scheduler.advance(actualCycles);
             if (this.debugger != null) {
+                scheduler.syncAll();
                 this.debugger.tickExact(actualCycles);
             }
             cycles += actualCycles;
-            handleInterrupts();
+            if (interruptsRaised || scheduler.pollSynced() || cpu.hasPendingInterrupt()) {
+                handleInterrupts();
+            }
             if (isHalted()) {
                 break;
             }
         }
+        scheduler.syncAll();
         if (this.debugger != null) {
             this.debugger.macroTick(cycles);
         }
@@ -65,80 +90,32 @@ public class VirtualBoy implements Emulable {
         return cpu.getPsw().getExecutionMode() == ExecutionMode.Halt;
     }
 
-    private static class InterruptChain {
-        Interrupt head;
-        void append(Interrupt i) {
-            Interrupt inserting = i;
-            Interrupt previous = null;
-            Interrupt current = head;
-            while (inserting != null) {
-                while (current != null && i.compareTo(current) >= 0) {
-                    previous = current;
-                    current = current.getNext();
-                }
-                if (previous == null) {
-                    head = inserting;
-                } else {
-                    previous.setNext(inserting);
-                }
-                Interrupt next = inserting.getNext();
-                inserting.setNext(current);
-                inserting = next;
-            }
-        }
-    }
-
-    private Interrupt collectInterrupts() {
-        InterruptChain chain = collectInterrupts(cpu, null);
-        chain = collectInterrupts(timer, chain);
-        chain = collectInterrupts(vip, chain);
-        chain = collectInterrupts(gamePad, chain);
-        if (chain != null) {
-            if (chain.head != null && chain.head.getNext() != null) {
-                logger.debug(Logger.Component.Interrupts, "Ignoring %s (priority)", chain.head.getNext());
-            }
-            return chain.head;
+    private int getAcceptedInterrupts() {
+        ProgramStatusWord psw = cpu.getPsw();
+        if (psw.getExecutionMode() != ExecutionMode.Normal || psw.getID()) {
+            return NON_MASKABLE_INTERRUPTS;
         }
-        return null;
-    }
-
-
-    private InterruptChain collectInterrupts(InterruptSource source, InterruptChain chain) {
-        Interrupt raised = source.raised();
-        if (raised != null) {
-            if (chain == null) {
-                chain = new InterruptChain();
-            }
-            chain.append(raised);
-        }
-        return chain;
+        return NON_MASKABLE_INTERRUPTS | MASKABLE_INTERRUPTS_BY_LEVEL[psw.getInt()];
     }
 
     private boolean handleInterrupts() {
-        Interrupt interrupt = collectInterrupts();
-        while (interrupt != null) {
-            if (processInterrupt(interrupt)) {
-                handleInterrupt(interrupt);
-                return true;
-            }
-            interrupt = interrupt.getNext();
+        int raised = cpu.raised() | timer.raised() | vip.raised() | gamePad.raised();
+        interruptsRaised = raised != 0;
+        if (raised == 0) {
+            return false;
         }
-        return false;
-    }
-
-    private boolean processInterrupt(Interrupt interrupt) {
-        if (interrupt.getType().isMaskable()) {
-            if (cpu.getPsw().getExecutionMode() != ExecutionMode.Normal) {
-                logger.debug(Logger.Component.Interrupts, "Ignoring maskable interrupt: %s", interrupt);
-                return false;
-            }
-            int interruptLevel = interrupt.getType().getInterruptLevel();
-            if (cpu.getPsw().getID() || interruptLevel < cpu.getPsw().getInt()) {
-                logger.debug(Logger.Component.Interrupts, "Ignoring interrupt (ID:%s, level: %d < %d): %s", cpu.getPsw().getID(), interruptLevel, cpu.getPsw().getInt(), interrupt);
-                return false;
+        int accepted = raised & getAcceptedInterrupts();
+        if (accepted == 0) {
+            if (LogLevels.isEnabled(Logger.Component.Interrupts, Logger.Level.Debug)) {
+                logger.debug(Logger.Component.Interrupts, "Ignoring interrupt (%s, ID:%s, level: %d): %s", cpu.getPsw().getExecutionMode(), cpu.getPsw().getID(), cpu.getPsw().getInt(), InterruptType.fromMask(raised));
             }
-            return true;
+            return false;
         }
+        int handled = Integer.lowestOneBit(accepted);
+        if ((raised & ~handled) != 0 && LogLevels.isEnabled(Logger.Component.Interrupts, Logger.Level.Debug)) {
+            logger.debug(Logger.Component.Interrupts, "Ignoring %s (priority)", InterruptType.fromMask(raised & ~handled));
+        }
+        handleInterrupt(SimpleInterrupt.get(InterruptType.fromMask(handled)));
         return true;
     }
 
@@ -181,9 +158,19 @@ public class VirtualBoy implements Emulable {
         vip.reset();
         vsu.reset();
         gamePad.reset();
+        scheduler.reset();
+        interruptsRaised = false;
         cpu.getPsw().setExecutionMode(ExecutionMode.Normal);
     }
 
+    public long getExecutedInstructions() {
+        return cpu.getExecutedInstructions();
+    }
+
+    public void setDeferredDrawing(boolean deferredDrawing) {
+        vip.setDeferredDrawing(deferredDrawing);
+    }
+
     public void attach(Debugger debugger) {
         this.debugger = debugger;
         this.cpu.attach(debugger);
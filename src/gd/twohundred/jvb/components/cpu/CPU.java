@@ -3,13 +3,14 @@ package gd.twohundred.jvb.components.cpu;
 import gd.twohundred.jvb.Logger;
 import gd.twohundred.jvb.components.Bus;
 import gd.twohundred.jvb.components.Debugger;
-import gd.twohundred.jvb.components.SimpleInterrupt;
 import gd.twohundred.jvb.components.interfaces.Emulable;
 import gd.twohundred.jvb.components.interfaces.Interrupt;
 import gd.twohundred.jvb.components.interfaces.InterruptSource;
 import gd.twohundred.jvb.components.interfaces.Resetable;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.function.IntBinaryOperator;
 
 import static gd.twohundred.jvb.Utils.extractS;
@@ -63,6 +64,7 @@ import static gd.twohundred.jvb.components.cpu.Instructions.OP_ADD_IMM;
 import static gd.twohundred.jvb.components.cpu.Instructions.OP_ADD_REG;
 import static gd.twohundred.jvb.components.cpu.Instructions.OP_AND_IMM;
 import static gd.twohundred.jvb.components.cpu.Instructions.OP_AND_REG;
+import static gd.twohundred.jvb.components.cpu.Instructions.OP_BCOND;
 import static gd.twohundred.jvb.components.cpu.Instructions.OP_BITSTRING;
 import static gd.twohundred.jvb.components.cpu.Instructions.OP_CAXI;
 import static gd.twohundred.jvb.components.cpu.Instructions.OP_CLI;
@@ -173,12 +175,15 @@ public class CPU implements Emulable, Resetable, InterruptSource {
 
     private final Bus bus;
     private final Logger logger;
+    private final InstructionCache instructionCache = new InstructionCache();
     private Debugger debugger;
-    private Interrupt pendingInterrupt;
+    private int pendingInterrupts;
+    private long executedInstructions;
 
     public CPU(Bus bus, Logger logger) {
         this.bus = bus;
         this.logger = logger;
+        bus.attach(instructionCache);
     }
 
     private void setRegister(int r, int value) {
@@ -313,337 +318,468 @@ public class CPU implements Emulable, Resetable, InterruptSource {
 
     public static final boolean DEBUG_CC = false;
 
+    public static final boolean BLOCK_EXECUTION = Boolean.getBoolean("jvb.cpu.blocks");
+    private static final int MAX_BLOCK_LENGTH = 32;
+
     @Override
-    public long tick(long targetCycles) {
+    public long tick(long maxCycles) {
+        if (BLOCK_EXECUTION && this.debugger == null && instructionCache.isBlockCacheable(pc)) {
+            InstructionBlock block = instructionCache.getBlock(pc);
+            if (block == null) {
+                block = buildBlock(pc);
+                instructionCache.putBlock(pc, block);
+            }
+            if (block != InstructionBlock.NONE) {
+                return execute(block, maxCycles);
+            }
+        }
         if (this.debugger != null) {
             this.debugger.onExec(pc);
         }
-        int first = bus.getHalfWord(pc);
-        int nextPC = pc + 2;
-        int cycles = 1;
-        if (testBits(first, FORMAT_III_PREFIX, FORMAT_III_PREFIX_POS, FORMAT_III_PREFIX_LEN)) {
-            int cond = extractU(first, COND_POS, COND_LEN);
-            int disp9 = extractS(first, DISP9_POS, DISP9_LEN);
-            if (testCondition(cond)) {
-                cycles = 3;
-                nextPC = pc + disp9;
+        int currentPC = pc;
+        int cycles = execute(fetch());
+        if (this.debugger != null) {
+            this.debugger.postExec(currentPC);
+        }
+        return cycles;
+    }
+
+    private long execute(InstructionBlock block, long maxCycles) {
+        long cycles = 0;
+        for (DecodedInstruction instruction : block.instructions) {
+            cycles += execute(instruction);
+            if (cycles >= maxCycles) {
+                break;
             }
-        } else {
-            int opcode = extractU(first, OPCODE_POS, OPCODE_LEN);
-            int reg1 = extractU(first, REG1_POS, REG1_LEN);
-            int reg2 = extractU(first, REG2_POS, REG2_LEN);
-            int imm5 = reg1;
-            switch (opcode) {
-                case OP_MOVEA: {
-                    int second = bus.getHalfWord(pc + 2);
-                    nextPC += 2;
-                    setRegister(reg2, getRegister(reg1) + signExtend(second, 16));
-                    break;
-                }
-                case OP_MOVHI: {
-                    int second = bus.getHalfWord(pc + 2);
-                    nextPC += 2;
-                    setRegister(reg2, getRegister(reg1) + (second << 16));
-                    break;
-                }
-                case OP_ADDI: {
-                    int second = bus.getHalfWord(pc + 2);
-                    nextPC += 2;
-                    setRegister(reg2, add(getRegister(reg1), signExtend(second, 16)));
-                    break;
-                }
-                case OP_AND_IMM: {
-                    int second = bus.getHalfWord(pc + 2);
-                    nextPC += 2;
-                    setRegister(reg2, andi(getRegister(reg1), second));
-                    break;
-                }
-                case OP_OR_IMM: {
-                    int second = bus.getHalfWord(pc + 2);
-                    nextPC += 2;
-                    setRegister(reg2, or(getRegister(reg1), second));
-                    break;
-                }
-                case OP_XOR_IMM: {
-                    int second = bus.getHalfWord(pc + 2);
-                    nextPC += 2;
-                    setRegister(reg2, xor(getRegister(reg1), second));
-                    break;
-                }
-                case OP_JMP: {
+        }
+        return cycles;
+    }
+
+    /**
+     * Returns {@link InstructionBlock#NONE} when the block would only hold one instruction: running it alone through
+     * a block would just add a lookup to the normal path.
+     */
+    private InstructionBlock buildBlock(int start) {
+        List<DecodedInstruction> instructions = new ArrayList<>();
+        int address = start;
+        while (instructions.size() < MAX_BLOCK_LENGTH) {
+            DecodedInstruction instruction = instructionCache.get(address);
+            if (instruction == null) {
+                instruction = decode(address);
+                instructionCache.put(address, instruction);
+            }
+            if (!instructions.isEmpty() && !isBlockBody(instruction.opcode) && !isBlockEnd(instruction.opcode)) {
+                break;
+            }
+            instructions.add(instruction);
+            if (!isBlockBody(instruction.opcode)) {
+                break;
+            }
+            address += instruction.size;
+        }
+        if (instructions.size() < 2) {
+            return InstructionBlock.NONE;
+        }
+        return new InstructionBlock(instructions.toArray(new DecodedInstruction[0]));
+    }
+
+    /**
+     * Instructions that only depend on and modify CPU registers: they can be executed in a row without
+     * giving other components a chance to observe the CPU in between.
+     */
+    private static boolean isBlockBody(int opcode) {
+        switch (opcode) {
+            case OP_MOVEA:
+            case OP_MOVHI:
+            case OP_ADDI:
+            case OP_AND_IMM:
+            case OP_OR_IMM:
+            case OP_XOR_IMM:
+            case OP_ADD_IMM:
+            case OP_ADD_REG:
+            case OP_AND_REG:
+            case OP_STSR:
+            case OP_MOV_IMM:
+            case OP_MOV_REG:
+            case OP_CMP_REG:
+            case OP_CMP_IMM:
+            case OP_SUB:
+            case OP_XOR_REG:
+            case OP_OR_REG:
+            case OP_SHL_IMM:
+            case OP_SHL_REG:
+            case OP_SHR_IMM:
+            case OP_SHR_REG:
+            case OP_SAR_IMM:
+            case OP_SAR_REG:
+            case OP_NOT:
+            case OP_MULU:
+            case OP_MUL:
+            case OP_SUBOP:
+            case OP_SETF:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isBlockEnd(int opcode) {
+        switch (opcode) {
+            case OP_BCOND:
+            case OP_JMP:
+            case OP_JAL:
+            case OP_JR:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private int execute(DecodedInstruction instruction) {
+        executedInstructions++;
+        int nextPC = pc + instruction.size;
+        int cycles = instruction.cycles;
+        int reg1 = instruction.reg1;
+        int reg2 = instruction.reg2;
+        int imm = instruction.imm;
+        switch (instruction.opcode) {
+            case OP_BCOND: {
+                if (testCondition(reg1)) {
                     cycles = 3;
-                    nextPC = getRegister(reg1);
-                    break;
-                }
-                case OP_ADD_IMM: {
-                    int intValue = add(getRegister(reg2), signExtend(imm5, IMM5_LEN));
-                    setRegister(reg2, intValue);
-                    break;
-                }
-                case OP_ADD_REG: {
-                    setRegister(reg2, add(getRegister(reg2), getRegister(reg1)));
-                    break;
-                }
-                case OP_AND_REG: {
-                    setRegister(reg2, and(getRegister(reg2), getRegister(reg1)));
-                    break;
-                }
-                case OP_LDSR: {
-                    setSystemRegister(imm5, getRegister(reg2));
-                    break;
-                }
-                case OP_STSR: {
-                    setRegister(reg2, getSystemRegister(imm5));
-                    break;
-                }
-                case OP_SEI: {
-                    psw.setInterruptDisable(true);
-                    break;
-                }
-                case OP_CLI: {
-                    psw.setInterruptDisable(false);
-                    break;
-                }
-                case OP_MOV_IMM: {
-                    setRegister(reg2, signExtend(imm5, IMM5_LEN));
-                    break;
-                }
-                case OP_MOV_REG: {
-                    setRegister(reg2, getRegister(reg1));
-                    break;
-                }
-                case OP_OUTB:
-                case OP_STB: {
-                    int second = bus.getHalfWord(pc + 2);
-                    nextPC += 2;
-                    cycles = 4;
-                    int disp16 = signExtend(second, 16);
-                    bus.setByte(getRegister(reg1) + disp16, (byte) getRegister(reg2));
-                    break;
-                }
-                case OP_OUTH:
-                case OP_STH: {
-                    int second = bus.getHalfWord(pc + 2);
-                    nextPC += 2;
-                    cycles = 4;
-                    int disp16 = signExtend(second, 16);
-                    bus.setHalfWord(getRegister(reg1) + disp16, (short) getRegister(reg2));
-                    break;
-                }
-                case OP_STW:
-                case OP_OUTW: {
-                    int second = bus.getHalfWord(pc + 2);
-                    nextPC += 2;
-                    cycles = 4;
-                    int disp16 = signExtend(second, 16);
-                    bus.setWord(getRegister(reg1) + disp16, getRegister(reg2));
-                    break;
+                    nextPC = pc + imm;
                 }
-                case OP_LDB: {
-                    int second = bus.getHalfWord(pc + 2);
-                    nextPC += 2;
-                    cycles = 4;
-                    int disp16 = signExtend(second, 16);
-                    setRegister(reg2, signExtend(bus.getByte(getRegister(reg1) + disp16), Byte.SIZE));
-                    break;
-                }
-                case OP_LDH: {
-                    int second = bus.getHalfWord(pc + 2);
-                    nextPC += 2;
-                    cycles = 4;
-                    int disp16 = signExtend(second, 16);
-                    setRegister(reg2, signExtend(bus.getHalfWord(getRegister(reg1) + disp16), Short.SIZE));
-                    break;
-                }
-                case OP_INW:
-                case OP_LDW: {
-                    int second = bus.getHalfWord(pc + 2);
-                    nextPC += 2;
-                    cycles = 4;
-                    int disp16 = signExtend(second, 16);
-                    setRegister(reg2, bus.getWord(getRegister(reg1) + disp16));
-                    break;
-                }
-                case OP_INB: {
-                    int second = bus.getHalfWord(pc + 2);
-                    nextPC += 2;
-                    cycles = 4;
-                    int disp16 = signExtend(second, 16);
-                    setRegister(reg2, zeroExtend(bus.getByte(getRegister(reg1) + disp16), Byte.SIZE));
-                    break;
-                }
-                case OP_INH: {
-                    int second = bus.getHalfWord(pc + 2);
-                    nextPC += 2;
-                    cycles = 4;
-                    int disp16 = signExtend(second, 16);
-                    setRegister(reg2, zeroExtend(bus.getHalfWord(getRegister(reg1) + disp16), Short.SIZE));
-                    break;
-                }
-                case OP_JAL: {
-                    int second = bus.getHalfWord(pc + 2);
-                    int disp26 = signExtend(second | (reg1 << (16 + REG1_POS)) | (reg2 << (16 + REG2_POS)), DISP26_LEN);
-                    nextPC = pc + disp26;
+                break;
+            }
+            case OP_MOVEA: {
+                setRegister(reg2, getRegister(reg1) + imm);
+                break;
+            }
+            case OP_MOVHI: {
+                setRegister(reg2, getRegister(reg1) + imm);
+                break;
+            }
+            case OP_ADDI: {
+                setRegister(reg2, add(getRegister(reg1), imm));
+                break;
+            }
+            case OP_AND_IMM: {
+                setRegister(reg2, andi(getRegister(reg1), imm));
+                break;
+            }
+            case OP_OR_IMM: {
+                setRegister(reg2, or(getRegister(reg1), imm));
+                break;
+            }
+            case OP_XOR_IMM: {
+                setRegister(reg2, xor(getRegister(reg1), imm));
+                break;
+            }
+            case OP_JMP: {
+                nextPC = getRegister(reg1);
+                break;
+            }
+            case OP_ADD_IMM: {
+                int intValue = add(getRegister(reg2), imm);
+                setRegister(reg2, intValue);
+                break;
+            }
+            case OP_ADD_REG: {
+                setRegister(reg2, add(getRegister(reg2), getRegister(reg1)));
+                break;
+            }
+            case OP_AND_REG: {
+                setRegister(reg2, and(getRegister(reg2), getRegister(reg1)));
+                break;
+            }
+            case OP_LDSR: {
+                setSystemRegister(imm, getRegister(reg2));
+                break;
+            }
+            case OP_STSR: {
+                setRegister(reg2, getSystemRegister(imm));
+                break;
+            }
+            case OP_SEI: {
+                psw.setInterruptDisable(true);
+                break;
+            }
+            case OP_CLI: {
+                psw.setInterruptDisable(false);
+                break;
+            }
+            case OP_MOV_IMM: {
+                setRegister(reg2, imm);
+                break;
+            }
+            case OP_MOV_REG: {
+                setRegister(reg2, getRegister(reg1));
+                break;
+            }
+            case OP_OUTB:
+            case OP_STB: {
+                bus.setByte(getRegister(reg1) + imm, (byte) getRegister(reg2));
+                break;
+            }
+            case OP_OUTH:
+            case OP_STH: {
+                bus.setHalfWord(getRegister(reg1) + imm, (short) getRegister(reg2));
+                break;
+            }
+            case OP_STW:
+            case OP_OUTW: {
+                bus.setWord(getRegister(reg1) + imm, getRegister(reg2));
+                break;
+            }
+            case OP_LDB: {
+                setRegister(reg2, signExtend(bus.getByte(getRegister(reg1) + imm), Byte.SIZE));
+                break;
+            }
+            case OP_LDH: {
+                setRegister(reg2, signExtend(bus.getHalfWord(getRegister(reg1) + imm), Short.SIZE));
+                break;
+            }
+            case OP_INW:
+            case OP_LDW: {
+                setRegister(reg2, bus.getWord(getRegister(reg1) + imm));
+                break;
+            }
+            case OP_INB: {
+                setRegister(reg2, zeroExtend(bus.getByte(getRegister(reg1) + imm), Byte.SIZE));
+                break;
+            }
+            case OP_INH: {
+                setRegister(reg2, zeroExtend(bus.getHalfWord(getRegister(reg1) + imm), Short.SIZE));
+                break;
+            }
+            case OP_JAL: {
+                nextPC = pc + imm;
+                setRegister(LINK_REG, pc + 4);
+                break;
+            }
+            case OP_JR: {
+                nextPC = pc + imm;
+                break;
+            }
+            case OP_CMP_REG: {
+                sub(getRegister(reg2), getRegister(reg1));
+                break;
+            }
+            case OP_CMP_IMM: {
+                sub(getRegister(reg2), imm);
+                break;
+            }
+            case OP_SUB: {
+                setRegister(reg2, sub(getRegister(reg2), getRegister(reg1)));
+                break;
+            }
+            case OP_XOR_REG: {
+                setRegister(reg2, xor(getRegister(reg2), getRegister(reg1)));
+                break;
+            }
+            case OP_OR_REG: {
+                setRegister(reg2, or(getRegister(reg2), getRegister(reg1)));
+                break;
+            }
+            case OP_SHL_IMM: {
+                setRegister(reg2, shl(getRegister(reg2), imm));
+                break;
+            }
+            case OP_SHL_REG: {
+                setRegister(reg2, shl(getRegister(reg2), getRegister(reg1) & 0x1f));
+                break;
+            }
+            case OP_SHR_IMM: {
+                setRegister(reg2, shr(getRegister(reg2), imm));
+                break;
+            }
+            case OP_SHR_REG: {
+                setRegister(reg2, shr(getRegister(reg2), getRegister(reg1) & 0x1f));
+                break;
+            }
+            case OP_SAR_IMM: {
+                setRegister(reg2, sar(getRegister(reg2), imm));
+                break;
+            }
+            case OP_SAR_REG: {
+                setRegister(reg2, sar(getRegister(reg2), getRegister(reg1) & 0x1f));
+                break;
+            }
+            case OP_NOT: {
+                setRegister(reg2, not(getRegister(reg1)));
+                break;
+            }
+            case OP_MULU: {
+                long full = mul(getRegister(reg2) & 0xffff_ffffL, getRegister(reg1) & 0xffff_ffffL);
+                setRegister(30, (int) (full >> 32));
+                setRegister(reg2, (int) full);
+                break;
+            }
+            case OP_MUL: {
+                long full = mul(getRegister(reg2), getRegister(reg1));
+                setRegister(30, (int) (full >> 32));
+                setRegister(reg2, (int) full);
+                break;
+            }
+            case OP_DIVU: {
+                long divisor = getRegister(reg1) & 0xffff_ffffL;
+                if (divisor == 0) {
                     cycles = 3;
-                    setRegister(LINK_REG, pc + 4);
-                    break;
+                    pendingInterrupts |= Interrupt.InterruptType.ZeroDivision.getMask();
+                } else {
+                    cycles = 36;
+                    long dividend = getRegister(reg2) & 0xffff_ffffL;
+                    setRegister(30, (int) (dividend % divisor)); // mod or rem?
+                    setRegister(reg2, divu(dividend, divisor));
                 }
-                case OP_JR: {
-                    int second = bus.getHalfWord(pc + 2);
-                    int disp26 = signExtend(second | (reg1 << (16 + REG1_POS)) | (reg2 << (16 + REG2_POS)), DISP26_LEN);
-                    nextPC = pc + disp26;
+                break;
+            }
+            case OP_DIV: {
+                int divisor = getRegister(reg1);
+                if (divisor == 0) {
                     cycles = 3;
-                    break;
-                }
-                case OP_CMP_REG: {
-                    sub(getRegister(reg2), getRegister(reg1));
-                    break;
-                }
-                case OP_CMP_IMM: {
-                    sub(getRegister(reg2), signExtend(imm5, IMM5_LEN));
-                    break;
-                }
-                case OP_SUB: {
-                    setRegister(reg2, sub(getRegister(reg2), getRegister(reg1)));
-                    break;
-                }
-                case OP_XOR_REG: {
-                    setRegister(reg2, xor(getRegister(reg2), getRegister(reg1)));
-                    break;
-                }
-                case OP_OR_REG: {
-                    setRegister(reg2, or(getRegister(reg2), getRegister(reg1)));
-                    break;
-                }
-                case OP_SHL_IMM: {
-                    setRegister(reg2, shl(getRegister(reg2), imm5));
-                    break;
-                }
-                case OP_SHL_REG: {
-                    setRegister(reg2, shl(getRegister(reg2), getRegister(reg1) & 0x1f));
-                    break;
-                }
-                case OP_SHR_IMM: {
-                    setRegister(reg2, shr(getRegister(reg2), imm5));
-                    break;
-                }
-                case OP_SHR_REG: {
-                    setRegister(reg2, shr(getRegister(reg2), getRegister(reg1) & 0x1f));
-                    break;
-                }
-                case OP_SAR_IMM: {
-                    setRegister(reg2, sar(getRegister(reg2), imm5));
-                    break;
-                }
-                case OP_SAR_REG: {
-                    setRegister(reg2, sar(getRegister(reg2), getRegister(reg1) & 0x1f));
-                    break;
+                    pendingInterrupts |= Interrupt.InterruptType.ZeroDivision.getMask();
+                } else {
+                    cycles = 38;
+                    int dividend = getRegister(reg2);
+                    setRegister(30, dividend % divisor); // mod or rem?
+                    setRegister(reg2, div(dividend, divisor));
                 }
-                case OP_NOT: {
-                    setRegister(reg2, not(getRegister(reg1)));
-                    break;
-                }
-                case OP_MULU: {
-                    cycles = 13;
-                    long full = mul(getRegister(reg2) & 0xffff_ffffL, getRegister(reg1) & 0xffff_ffffL);
-                    setRegister(30, (int) (full >> 32));
-                    setRegister(reg2, (int) full);
-                    break;
-                }
-                case OP_MUL: {
-                    cycles = 13;
-                    long full = mul(getRegister(reg2), getRegister(reg1));
-                    setRegister(30, (int) (full >> 32));
-                    setRegister(reg2, (int) full);
-                    break;
-                }
-                case OP_DIVU: {
-                    long divisor = getRegister(reg1) & 0xffff_ffffL;
-                    if (divisor == 0) {
-                        cycles = 3;
-                        pendingInterrupt = new SimpleInterrupt(Interrupt.InterruptType.ZeroDivision);
-                    } else {
-                        cycles = 36;
-                        long dividend = getRegister(reg2) & 0xffff_ffffL;
-                        setRegister(30, (int) (dividend % divisor)); // mod or rem?
-                        setRegister(reg2, divu(dividend, divisor));
-                    }
-                    break;
-                }
-                case OP_DIV: {
-                    int divisor = getRegister(reg1);
-                    if (divisor == 0) {
-                        cycles = 3;
-                        pendingInterrupt = new SimpleInterrupt(Interrupt.InterruptType.ZeroDivision);
-                    } else {
-                        cycles = 38;
-                        int dividend = getRegister(reg2);
-                        setRegister(30, dividend % divisor); // mod or rem?
-                        setRegister(reg2, div(dividend, divisor));
-                    }
-                    break;
-                }
-                case OP_RETI: {
-                    cycles = 10;
-                    if (psw.getNP()) {
-                        nextPC = fepc;
-                        psw.set(fepsw);
-                        psw.setExecutionMode(ProgramStatusWord.ExecutionMode.Exception);
-                        logger.debug(Logger.Component.CPU, "RETI: Duplex -> Exception");
-                    } else {
-                        nextPC = eipc;
-                        psw.set(eipsw);
-                        psw.setExecutionMode(ProgramStatusWord.ExecutionMode.Normal);
-                        logger.debug(Logger.Component.CPU, "RETI: Exception -> Normal");
-                    }
-                    break;
-                }
-                case OP_SUBOP: {
-                    int second = bus.getHalfWord(pc + 2);
-                    int subOp = extractU(second, SUB_OPCODE_POS - 16, SUB_OPCODE_LEN);
-                    nextPC += 2;
-                    cycles = subop(reg2, reg1, subOp);
-                    break;
-                }
-                case OP_SETF: {
-                    int cond = imm5;
-                    setRegister(reg2, testCondition(cond) ? 1 : 0);
-                    break;
-                }
-                case OP_CAXI: {
-                    int second = bus.getHalfWord(pc + 2);
-                    nextPC += 2;
-                    cycles = 26;
-                    int disp16 = signExtend(second, 16);
-                    int lockAddr = (getRegister(reg1) + disp16) & ~0b11;
-                    int lock = bus.getWord(lockAddr);
-                    sub(getRegister(reg2), lock);
-                    setRegister(reg2, lock);
-                    if (psw.getZ()) {
-                        bus.setWord(lockAddr, getRegister(30));
-                    }
-                    break;
-                }
-                case OP_BITSTRING: {
-                    cycles = bitstring(imm5);
-                    break;
+                break;
+            }
+            case OP_RETI: {
+                if (psw.getNP()) {
+                    nextPC = fepc;
+                    psw.set(fepsw);
+                    psw.setExecutionMode(ProgramStatusWord.ExecutionMode.Exception);
+                    logger.debug(Logger.Component.CPU, "RETI: Duplex -> Exception");
+                } else {
+                    nextPC = eipc;
+                    psw.set(eipsw);
+                    psw.setExecutionMode(ProgramStatusWord.ExecutionMode.Normal);
+                    logger.debug(Logger.Component.CPU, "RETI: Exception -> Normal");
                 }
-                case OP_ILL_1: {
-                    logger.warning(Logger.Component.CPU, "Illegal instruction @ %#08x!", pc);
-                    pendingInterrupt = new SimpleInterrupt(Interrupt.InterruptType.IllegalOpcode);
-                    break;
+                break;
+            }
+            case OP_SUBOP: {
+                cycles = subop(reg2, reg1, imm);
+                break;
+            }
+            case OP_SETF: {
+                setRegister(reg2, testCondition(imm) ? 1 : 0);
+                break;
+            }
+            case OP_CAXI: {
+                int lockAddr = (getRegister(reg1) + imm) & ~0b11;
+                int lock = bus.getWord(lockAddr);
+                sub(getRegister(reg2), lock);
+                setRegister(reg2, lock);
+                if (psw.getZ()) {
+                    bus.setWord(lockAddr, getRegister(30));
                 }
-                default:
-                    throw new RuntimeException(String.format("Unknown opcode: 0b%s @ %08X", toBinary(opcode, OPCODE_LEN), pc));
+                break;
             }
-        }
-        if (this.debugger != null) {
-            this.debugger.postExec(pc);
+            case OP_BITSTRING: {
+                cycles = bitstring(imm);
+                break;
+            }
+            case OP_ILL_1: {
+                logger.warning(Logger.Component.CPU, "Illegal instruction @ %#08x!", pc);
+                pendingInterrupts |= Interrupt.InterruptType.IllegalOpcode.getMask();
+                break;
+            }
+            default:
+                throw new RuntimeException(String.format("Unknown opcode: 0b%s @ %08X", toBinary(instruction.opcode, OPCODE_LEN), pc));
         }
         pc = nextPC;
         return cycles;
     }
 
+    private DecodedInstruction fetch() {
+        if (this.debugger != null) {
+            // go through the bus so that fetches are visible to the debugger
+            return decode(pc);
+        }
+        DecodedInstruction instruction = instructionCache.get(pc);
+        if (instruction == null) {
+            instruction = decode(pc);
+            instructionCache.put(pc, instruction);
+        }
+        return instruction;
+    }
+
+    private DecodedInstruction decode(int pc) {
+        int first = bus.getHalfWord(pc);
+        if (testBits(first, FORMAT_III_PREFIX, FORMAT_III_PREFIX_POS, FORMAT_III_PREFIX_LEN)) {
+            int cond = extractU(first, COND_POS, COND_LEN);
+            int disp9 = extractS(first, DISP9_POS, DISP9_LEN);
+            return new DecodedInstruction(OP_BCOND, cond, 0, disp9, 2, 1);
+        }
+        int opcode = extractU(first, OPCODE_POS, OPCODE_LEN);
+        int reg1 = extractU(first, REG1_POS, REG1_LEN);
+        int reg2 = extractU(first, REG2_POS, REG2_LEN);
+        int imm5 = reg1;
+        switch (opcode) {
+            case OP_MOVEA:
+            case OP_ADDI: {
+                int second = bus.getHalfWord(pc + 2);
+                return new DecodedInstruction(opcode, reg1, reg2, signExtend(second, 16), 4, 1);
+            }
+            case OP_MOVHI: {
+                int second = bus.getHalfWord(pc + 2);
+                return new DecodedInstruction(opcode, reg1, reg2, second << 16, 4, 1);
+            }
+            case OP_AND_IMM:
+            case OP_OR_IMM:
+            case OP_XOR_IMM: {
+                int second = bus.getHalfWord(pc + 2);
+                return new DecodedInstruction(opcode, reg1, reg2, second, 4, 1);
+            }
+            case OP_OUTB:
+            case OP_STB:
+            case OP_OUTH:
+            case OP_STH:
+            case OP_STW:
+            case OP_OUTW:
+            case OP_LDB:
+            case OP_LDH:
+            case OP_INW:
+            case OP_LDW:
+            case OP_INB:
+            case OP_INH: {
+                int second = bus.getHalfWord(pc + 2);
+                return new DecodedInstruction(opcode, reg1, reg2, signExtend(second, 16), 4, 4);
+            }
+            case OP_CAXI: {
+                int second = bus.getHalfWord(pc + 2);
+                return new DecodedInstruction(opcode, reg1, reg2, signExtend(second, 16), 4, 26);
+            }
+            case OP_JAL:
+            case OP_JR: {
+                int second = bus.getHalfWord(pc + 2);
+                int disp26 = signExtend(second | (reg1 << (16 + REG1_POS)) | (reg2 << (16 + REG2_POS)), DISP26_LEN);
+                return new DecodedInstruction(opcode, reg1, reg2, disp26, 4, 3);
+            }
+            case OP_SUBOP: {
+                int second = bus.getHalfWord(pc + 2);
+                int subOp = extractU(second, SUB_OPCODE_POS - 16, SUB_OPCODE_LEN);
+                return new DecodedInstruction(opcode, reg1, reg2, subOp, 4, 1);
+            }
+            case OP_ADD_IMM:
+            case OP_MOV_IMM:
+            case OP_CMP_IMM:
+                return new DecodedInstruction(opcode, reg1, reg2, signExtend(imm5, IMM5_LEN), 2, 1);
+            case OP_JMP:
+                return new DecodedInstruction(opcode, reg1, reg2, imm5, 2, 3);
+            case OP_MUL:
+            case OP_MULU:
+                return new DecodedInstruction(opcode, reg1, reg2, imm5, 2, 13);
+            case OP_RETI:
+                return new DecodedInstruction(opcode, reg1, reg2, imm5, 2, 10);
+            default:
+                return new DecodedInstruction(opcode, reg1, reg2, imm5, 2, 1);
+        }
+    }
+
     private int bitstring(int op) {
         int sourceAddr = getRegister(30) & ~0b11;
         int destinationAddr = getRegister(29) & ~0b11;
@@ -654,7 +790,7 @@ public class CPU implements Emulable, Resetable, InterruptSource {
             case 0b00: // search
                 if (testBit(op, 3)) {
                     logger.warning(Logger.Component.CPU, "Illegal bit string opcode 0b%s @ %#08x!", toBinary(op, 5), pc);
-                    pendingInterrupt = new SimpleInterrupt(Interrupt.InterruptType.IllegalOpcode);
+                    pendingInterrupts |= Interrupt.InterruptType.IllegalOpcode.getMask();
                     return 1;
                 }
                 return bitStringSearch(op & mask(2), sourceAddr, sourceOffset, length);
@@ -662,7 +798,7 @@ public class CPU implements Emulable, Resetable, InterruptSource {
                 return bitStringArithmetic(op & mask(3), sourceAddr, sourceOffset, destinationAddr, destinationOffset, length);
             default:
                 logger.warning(Logger.Component.CPU, "Illegal bitstring opcode 0b%s @ %#08x!", toBinary(op, 5), pc);
-                pendingInterrupt = new SimpleInterrupt(Interrupt.InterruptType.IllegalOpcode);
+                pendingInterrupts |= Interrupt.InterruptType.IllegalOpcode.getMask();
                 return 1;
         }
     }
@@ -945,90 +1081,63 @@ public class CPU implements Emulable, Resetable, InterruptSource {
     }
 
     private int add(int a, int b) {
-        long value = a + b;
-        int intValue = (int) value;
-        boolean carry = (value >>> 32) != 0;
-        boolean zero = intValue == 0;
-        boolean sign = intValue < 0;
-        boolean overflow = ((a ^ intValue) & (b ^ intValue)) < 0;
-        psw.setZeroSignOveflowCarry(zero, sign, overflow, carry);
-        return intValue;
+        int value = a + b;
+        psw.setAddFlags(a, b, value);
+        return value;
     }
 
     private int sub(int a, int b) {
-        long value = a - b;
-        int intValue = (int) value;
-        boolean carry = (value >>> 32) != 0;
-        boolean zero = intValue == 0;
-        boolean sign = intValue < 0;
-        boolean overflow = ((a ^ b) & (a ^ intValue)) < 0;
-        psw.setZeroSignOveflowCarry(zero, sign, overflow, carry);
-        return intValue;
+        int value = a - b;
+        psw.setSubFlags(a, b, value);
+        return value;
     }
 
     private int xor(int a, int b) {
         int value = a ^ b;
-        boolean zero = value == 0;
-        boolean sign = value < 0;
-        psw.setZeroSignOveflow(zero, sign, false);
+        psw.setLogicFlags(value);
         return value;
     }
 
     private int or(int a, int b) {
         int value = a | b;
-        boolean zero = value == 0;
-        boolean sign = value < 0;
-        psw.setZeroSignOveflow(zero, sign, false);
+        psw.setLogicFlags(value);
         return value;
     }
 
     private int andi(int a, int b) {
+        // b is a zero-extended 16 bit immediate: the result is never negative
         int value = a & b;
-        boolean zero = value == 0;
-        psw.setZeroSignOveflow(zero, false, false);
+        psw.setLogicFlags(value);
         return value;
     }
 
     private int and(int a, int b) {
         int value = a & b;
-        boolean zero = value == 0;
-        boolean sign = value < 0;
-        psw.setZeroSignOveflow(zero, sign, false);
+        psw.setLogicFlags(value);
         return value;
     }
 
     private int shl(int a, int b) {
         int value = a << b;
-        boolean zero = value == 0;
-        boolean sign = value < 0;
-        boolean carry = b > 0 && testBit(a, 32 - b);
-        psw.setZeroSignOveflowCarry(zero, sign, false, carry);
+        psw.setShiftLeftFlags(a, b, value);
         return value;
     }
 
     private int shr(int a, int b) {
         int value = a >>> b;
-        boolean zero = value == 0;
-        boolean sign = value < 0;
-        boolean carry = b > 0 && testBit(a, b - 1);
-        psw.setZeroSignOveflowCarry(zero, sign, false, carry);
+        psw.setShiftRightFlags(a, b, value);
         return value;
     }
 
     private int sar(int a, int b) {
         int value = a >> b;
-        boolean zero = value == 0;
-        boolean sign = value < 0;
-        boolean carry = b > 0 && testBit(a, b - 1);
-        psw.setZeroSignOveflowCarry(zero, sign, false, carry);
+        psw.setShiftRightFlags(a, b, value);
         return value;
     }
 
     private int not(int a) {
         int value = ~a;
-        boolean zero = value == 0;
-        boolean sign = value < 0;
-        psw.setZeroSignOveflow(zero, sign, false);
+        psw.setLogicFlags(value);
         return value;
     }
 
@@ -1056,6 +1165,10 @@ public class CPU implements Emulable, Resetable, InterruptSource {
         return value;
     }
 
+    public long getExecutedInstructions() {
+        return executedInstructions;
+    }
+
     public Bus getBus() {
         return bus;
     }
@@ -1116,11 +1229,15 @@ public class CPU implements Emulable, Resetable, InterruptSource {
         this.ecr = insert(eicc, ECR_EICC_POS, ECR_EICC_LEN, ecr);
     }
 
+    public boolean hasPendingInterrupt() {
+        return pendingInterrupts != 0;
+    }
+
     @Override
-    public Interrupt raised() {
-        Interrupt interrupt = pendingInterrupt;
-        pendingInterrupt = null;
-        return interrupt;
+    public int raised() {
+        int interrupts = pendingInterrupts;
+        pendingInterrupts = 0;
+        return interrupts;
     }
 
     public void attach(Debugger debugger) {
@@ -0,0 +1,23 @@
+package gd.twohundred.jvb.components.cpu;
+
+final class DecodedInstruction {
+    final int opcode;
+    final int reg1;
+    final int reg2;
+    /**
+     * The immediate operand, already extracted/extended the way the instruction uses it.
+     * For format III (Bcond) instructions, {@link #reg1} holds the condition and this holds the displacement.
+     */
+    final int imm;
+    final int size;
+    final int cycles;
+
+    DecodedInstruction(int opcode, int reg1, int reg2, int imm, int size, int cycles) {
+        this.opcode = opcode;
+        this.reg1 = reg1;
+        this.reg2 = reg2;
+        this.imm = imm;
+        this.size = size;
+        this.cycles = cycles;
+    }
+}
@@ -0,0 +1,15 @@
+package gd.twohundred.jvb.components.cpu;
+
+/**
+ * A straight run of at least two instructions that only touch CPU registers, possibly ending with a branch.
+ */
+final class InstructionBlock {
+    // cached where no block starts, such instructions go through the normal fetch and execute path
+    static final InstructionBlock NONE = new InstructionBlock(new DecodedInstruction[0]);
+
+    final DecodedInstruction[] instructions;
+
+    InstructionBlock(DecodedInstruction[] instructions) {
+        this.instructions = instructions;
+    }
+}
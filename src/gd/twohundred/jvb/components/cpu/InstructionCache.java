@@ -0,0 +1,109 @@
+package gd.twohundred.jvb.components.cpu;
+
+import gd.twohundred.jvb.components.Bus;
+import gd.twohundred.jvb.components.CartridgeROM;
+import gd.twohundred.jvb.components.SystemWRAM;
+
+public class InstructionCache {
+    private static final int PAGE_BITS = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_ENTRIES = PAGE_SIZE / Short.BYTES;
+    private static final int MAX_INSTRUCTION_SIZE = Integer.BYTES;
+
+    private final DecodedInstruction[][] romPages = new DecodedInstruction[CartridgeROM.MAX_SIZE / PAGE_SIZE][];
+    private final DecodedInstruction[][] wramPages = new DecodedInstruction[SystemWRAM.SIZE / PAGE_SIZE][];
+    // blocks are only cached for ROM so that they never have to be invalidated
+    private final InstructionBlock[][] romBlockPages = new InstructionBlock[CartridgeROM.MAX_SIZE / PAGE_SIZE][];
+
+    DecodedInstruction get(int pc) {
+        DecodedInstruction[][] pages = getPages(pc);
+        if (pages == null) {
+            return null;
+        }
+        int offset = getOffset(pc);
+        DecodedInstruction[] page = pages[offset >>> PAGE_BITS];
+        if (page == null) {
+            return null;
+        }
+        return page[(offset & (PAGE_SIZE - 1)) >>> 1];
+    }
+
+    void put(int pc, DecodedInstruction instruction) {
+        DecodedInstruction[][] pages = getPages(pc);
+        if (pages == null) {
+            return;
+        }
+        int offset = getOffset(pc);
+        DecodedInstruction[] page = pages[offset >>> PAGE_BITS];
+        if (page == null) {
+            page = new DecodedInstruction[PAGE_ENTRIES];
+            pages[offset >>> PAGE_BITS] = page;
+        }
+        page[(offset & (PAGE_SIZE - 1)) >>> 1] = instruction;
+    }
+
+    boolean isBlockCacheable(int pc) {
+        return (pc & (Bus.BUS_SIZE - 1)) >= CartridgeROM.START;
+    }
+
+    InstructionBlock getBlock(int pc) {
+        if (!isBlockCacheable(pc)) {
+            return null;
+        }
+        int offset = getOffset(pc);
+        InstructionBlock[] page = romBlockPages[offset >>> PAGE_BITS];
+        if (page == null) {
+            return null;
+        }
+        return page[(offset & (PAGE_SIZE - 1)) >>> 1];
+    }
+
+    void putBlock(int pc, InstructionBlock block) {
+        if (!isBlockCacheable(pc)) {
+            return;
+        }
+        int offset = getOffset(pc);
+        InstructionBlock[] page = romBlockPages[offset >>> PAGE_BITS];
+        if (page == null) {
+            page = new InstructionBlock[PAGE_ENTRIES];
+            romBlockPages[offset >>> PAGE_BITS] = page;
+        }
+        page[(offset & (PAGE_SIZE - 1)) >>> 1] = block;
+    }
+
+    public void invalidate(int address, int size) {
+        int effectiveAddress = address & (Bus.BUS_SIZE - 1);
+        if (effectiveAddress < SystemWRAM.START || effectiveAddress >= SystemWRAM.START + SystemWRAM.MAPPED_SIZE) {
+            return;
+        }
+        int writtenAddress = effectiveAddress & ~(size - 1);
+        int start = (writtenAddress & ~0b1) - (MAX_INSTRUCTION_SIZE - Short.BYTES);
+        int end = writtenAddress + size;
+        for (int pc = start; pc < end; pc += Short.BYTES) {
+            int offset = pc & (SystemWRAM.SIZE - 1);
+            DecodedInstruction[] page = wramPages[offset >>> PAGE_BITS];
+            if (page != null) {
+                page[(offset & (PAGE_SIZE - 1)) >>> 1] = null;
+            }
+        }
+    }
+
+    private DecodedInstruction[][] getPages(int pc) {
+        int effectiveAddress = pc & (Bus.BUS_SIZE - 1);
+        if (effectiveAddress >= CartridgeROM.START) {
+            return romPages;
+        }
+        if (effectiveAddress >= SystemWRAM.START && effectiveAddress < SystemWRAM.START + SystemWRAM.MAPPED_SIZE) {
+            return wramPages;
+        }
+        return null;
+    }
+
+    private static int getOffset(int pc) {
+        int effectiveAddress = pc & (Bus.BUS_SIZE - 1);
+        if (effectiveAddress >= CartridgeROM.START) {
+            return effectiveAddress & (CartridgeROM.MAX_SIZE - 1);
+        }
+        return effectiveAddress & (SystemWRAM.SIZE - 1);
+    }
+}
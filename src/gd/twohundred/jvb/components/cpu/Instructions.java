@@ -74,6 +74,7 @@ public class Instructions {
     public static final int OP_CAXI = 0b111010;
 
     public static final int OP_BITSTRING = 0b011111;
+    public static final int OP_BCOND = FORMAT_III_PREFIX << (FORMAT_III_PREFIX_POS - OPCODE_POS); // any 0b100xxx
 
     public static final int BITSTRING_ANDBSU = 0b001;
     public static final int BITSTRING_ANDNBSU = 0b101;
@@ -27,8 +27,25 @@ public class ProgramStatusWord {
     private static final int INT_LEN = 2;
     static final int PSW_MASK = intBits(Z_POS, S_POS, OV_POS, CY_POS, FPR_POS, FUD_POS, FOV_POS, FZD_POS, FIV_POS, FRO_POS, ID_POS, AE_POS, EP_POS, NP_POS) | mask(INT_POS, INT_LEN);
 
+    private static final int ZERO_SIGN_OVERFLOW_CARRY = intBits(Z_POS, S_POS, OV_POS, CY_POS);
+
     private int psw;
 
+    // Z/S/OV/CY of the last ALU operation are only computed when they are read
+    private enum FlagsOperation {
+        None,
+        Add,
+        Sub,
+        Logic,
+        ShiftLeft,
+        ShiftRight
+    }
+
+    private FlagsOperation flagsOperation = FlagsOperation.None;
+    private int flagsLeft;
+    private int flagsRight;
+    private int flagsResult;
+
     public enum ExecutionMode {
         Normal,
         Exception,
@@ -41,20 +58,58 @@ public class ProgramStatusWord {
 
     public void set(int value) {
         this.psw = value & PSW_MASK;
+        flagsOperation = FlagsOperation.None;
     }
 
     public void setZeroSignOveflowCarry(boolean zero, boolean sign, boolean overflow, boolean carry) {
-        int affected = intBits(Z_POS, S_POS, OV_POS, CY_POS);
         int set = intBit(Z_POS, zero) | intBit(S_POS, sign) | intBit(OV_POS, overflow) | intBit(CY_POS, carry);
-        psw = maskedMerge(set, affected, psw);
+        psw = maskedMerge(set, ZERO_SIGN_OVERFLOW_CARRY, psw);
+        flagsOperation = FlagsOperation.None;
     }
 
     public void setZeroSignOveflow(boolean zero, boolean sign, boolean overflow) {
+        materializeFlags();
         int affected = intBits(Z_POS, S_POS, OV_POS);
         int set = intBit(Z_POS, zero) | intBit(S_POS, sign) | intBit(OV_POS, overflow);
         psw = maskedMerge(set, affected, psw);
     }
 
+    void setAddFlags(int left, int right, int result) {
+        setFlagsOperation(FlagsOperation.Add, left, right, result);
+    }
+
+    void setSubFlags(int left, int right, int result) {
+        setFlagsOperation(FlagsOperation.Sub, left, right, result);
+    }
+
+    void setLogicFlags(int result) {
+        // logic operations leave CY untouched
+        setFlagsOperation(FlagsOperation.Logic, 0, getCY() ? 1 : 0, result);
+    }
+
+    void setShiftLeftFlags(int value, int shift, int result) {
+        setFlagsOperation(FlagsOperation.ShiftLeft, value, shift, result);
+    }
+
+    void setShiftRightFlags(int value, int shift, int result) {
+        setFlagsOperation(FlagsOperation.ShiftRight, value, shift, result);
+    }
+
+    private void setFlagsOperation(FlagsOperation operation, int left, int right, int result) {
+        flagsOperation = operation;
+        flagsLeft = left;
+        flagsRight = right;
+        flagsResult = result;
+    }
+
+    private void materializeFlags() {
+        if (flagsOperation != FlagsOperation.None) {
+            int set = intBit(Z_POS, getZ()) | intBit(S_POS, getS()) | intBit(OV_POS, getOV()) | intBit(CY_POS, getCY());
+            psw = maskedMerge(set, ZERO_SIGN_OVERFLOW_CARRY, psw);
+            flagsOperation = FlagsOperation.None;
+        }
+    }
+
     public void accumulateReservedUnderFlowOverflowPrecisionDegradation(boolean reservedArg, boolean underflow, boolean overflow, boolean precisionDegradation) {
         psw |= intBit(FRO_POS, reservedArg) | intBit(FUD_POS, underflow) | intBit(FOV_POS, overflow) | intBit(FPR_POS, precisionDegradation);
     }
@@ -64,18 +119,52 @@ public class ProgramStatusWord {
     }
 
     public boolean getCY() {
-        return testBit(psw, CY_POS);
+        switch (flagsOperation) {
+            case Add: {
+                long value = flagsLeft + flagsRight;
+                return (value >>> 32) != 0;
+            }
+            case Sub: {
+                long value = flagsLeft - flagsRight;
+                return (value >>> 32) != 0;
+            }
+            case Logic:
+                return flagsRight != 0;
+            case ShiftLeft:
+                return flagsRight > 0 && testBit(flagsLeft, 32 - flagsRight);
+            case ShiftRight:
+                return flagsRight > 0 && testBit(flagsLeft, flagsRight - 1);
+            default:
+                return testBit(psw, CY_POS);
+        }
     }
 
     public boolean getOV() {
-        return testBit(psw, OV_POS);
+        switch (flagsOperation) {
+            case Add:
+                return ((flagsLeft ^ flagsResult) & (flagsRight ^ flagsResult)) < 0;
+            case Sub:
+                return ((flagsLeft ^ flagsRight) & (flagsLeft ^ flagsResult)) < 0;
+            case Logic:
+            case ShiftLeft:
+            case ShiftRight:
+                return false;
+            default:
+                return testBit(psw, OV_POS);
+        }
     }
 
     public boolean getS() {
+        if (flagsOperation != FlagsOperation.None) {
+            return flagsResult < 0;
+        }
         return testBit(psw, S_POS);
     }
 
     public boolean getZ() {
+        if (flagsOperation != FlagsOperation.None) {
+            return flagsResult == 0;
+        }
         return testBit(psw, Z_POS);
     }
 
@@ -112,6 +201,7 @@ public class ProgramStatusWord {
     }
 
     public int getValue() {
+        materializeFlags();
         return psw;
     }
 
@@ -1,5 +1,6 @@
 package gd.twohundred.jvb.components.debug;
 
+import gd.twohundred.jvb.LogLevels;
 import gd.twohundred.jvb.Logger.Component;
 import gd.twohundred.jvb.Logger.Level;
 import gd.twohundred.jvb.components.debug.boxes.Box;
@@ -58,12 +59,14 @@ public class Logs implements View {
             Level componentLevel = levels.get(settingsComponent);
             if (componentLevel.ordinal() > 0) {
                 levels.put(settingsComponent, Level.values()[componentLevel.ordinal() - 1]);
+                LogLevels.set(settingsComponent, levels.get(settingsComponent));
             }
         }, KeyMap.key(terminal, InfoCmp.Capability.key_left));
         settingsKeyMap.bind(() -> {
             Level componentLevel = levels.get(settingsComponent);
             if (componentLevel.ordinal() + 1 < Level.values().length) {
                 levels.put(settingsComponent, Level.values()[componentLevel.ordinal() + 1]);
+                LogLevels.set(settingsComponent, levels.get(settingsComponent));
             }
         }, KeyMap.key(terminal, InfoCmp.Capability.key_right));
     }
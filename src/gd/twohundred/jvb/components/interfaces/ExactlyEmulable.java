@@ -1,6 +1,8 @@
 package gd.twohundred.jvb.components.interfaces;
 
 public interface ExactlyEmulable extends Emulable {
+    long NO_EVENT = Long.MAX_VALUE;
+
     @Override
     default long tick(long cycles) {
         tickExact(cycles);
@@ -8,4 +10,12 @@ public interface ExactlyEmulable extends Emulable {
     }
 
     void tickExact(long cycles);
+
+    /**
+     * Lower bound on the number of cycles that have to be ticked before this component does anything that can be
+     * observed from outside of it (raising an interrupt, producing output...) other than through its mapped memory.
+     */
+    default long cyclesUntilNextEvent() {
+        return 1;
+    }
 }
@@ -2,7 +2,7 @@ package gd.twohundred.jvb.components.interfaces;
 
 import static gd.twohundred.jvb.Utils.extractU;
 
-public interface Interrupt extends Comparable<Interrupt> {
+public interface Interrupt {
     enum InterruptType {
         GamePad             (0xfe00, 0xfffffe00, false, true ,  6),
         TimerZero           (0xfe10, 0xfffffe10, false, true ,  5),
@@ -25,6 +25,16 @@ public interface Interrupt extends Comparable<Interrupt> {
         private final boolean restoreCurrentPC;
         private final boolean maskable;
         private final int priority;
+        // traps share a priority, they are never raised through a mask
+        private static final InterruptType[] BY_PRIORITY = new InterruptType[Integer.SIZE];
+
+        static {
+            for (InterruptType type : values()) {
+                if (BY_PRIORITY[type.priority] == null) {
+                    BY_PRIORITY[type.priority] = type;
+                }
+            }
+        }
 
         InterruptType(int baseExceptionCode, int handlerAddress, boolean restoreCurrentPC, boolean maskable, int priority) {
             this.baseExceptionCode = (short) baseExceptionCode;
@@ -57,14 +67,22 @@ public interface Interrupt extends Comparable<Interrupt> {
         private int getPriority() {
             return priority;
         }
-    }
-    InterruptType getType();
-    short getExceptionCode();
 
-    Interrupt getNext();
-    void setNext(Interrupt i);
+        /**
+         * Lower bits have higher priority.
+         */
+        public int getMask() {
+            return 1 << getPriority();
+        }
 
-    default int compareTo(Interrupt o) {
-        return Integer.compare(this.getType().getPriority(), o.getType().getPriority());
+        /**
+         * Returns the highest priority interrupt type in the mask.
+         */
+        public static InterruptType fromMask(int mask) {
+            assert mask != 0;
+            return BY_PRIORITY[Integer.numberOfTrailingZeros(mask)];
+        }
     }
+    InterruptType getType();
+    short getExceptionCode();
 }
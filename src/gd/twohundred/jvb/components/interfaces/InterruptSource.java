@@ -1,5 +1,8 @@
 package gd.twohundred.jvb.components.interfaces;
 
 public interface InterruptSource {
-    Interrupt raised();
+    /**
+     * Returns the mask of raised {@link Interrupt.InterruptType interrupt types}, or 0.
+     */
+    int raised();
 }
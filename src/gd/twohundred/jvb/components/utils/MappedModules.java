@@ -14,11 +14,12 @@ public abstract class MappedModules implements ReadWriteMemory {
         try {
             int effectiveAddress = address & (getSize() - 1);
             MappedMemory mappedModule = getMappedModule(effectiveAddress);
+            if (!(mappedModule instanceof ReadOnlyMemory)) {
+                return handlePermissionException(address);
+            }
             return ((ReadOnlyMemory) mappedModule).getByte(effectiveAddress - mappedModule.getStart());
         } catch (BusError be) {
             return handleBusError(address, be);
-        } catch (ClassCastException cce) {
-            return handlePermissionException(address);
         }
     }
 
@@ -27,11 +28,12 @@ public abstract class MappedModules implements ReadWriteMemory {
         try {
             int effectiveAddress = (address & ~0b1) & (getSize() - 1);
             MappedMemory mappedModule = getMappedModule(effectiveAddress);
+            if (!(mappedModule instanceof ReadOnlyMemory)) {
+                return handlePermissionException(address);
+            }
             return ((ReadOnlyMemory) mappedModule).getHalfWord(effectiveAddress - mappedModule.getStart());
         } catch (BusError be) {
             return handleBusError(address, be);
-        } catch (ClassCastException cce) {
-            return handlePermissionException(address);
         }
     }
 
@@ -40,11 +42,12 @@ public abstract class MappedModules implements ReadWriteMemory {
         try {
             int effectiveAddress = (address & ~0b11) & (getSize() - 1);
             MappedMemory mappedModule = getMappedModule(effectiveAddress);
+            if (!(mappedModule instanceof ReadOnlyMemory)) {
+                return handlePermissionException(address);
+            }
             return ((ReadOnlyMemory) mappedModule).getWord(effectiveAddress - mappedModule.getStart());
         } catch (BusError be) {
             return handleBusError(address, be);
-        } catch (ClassCastException cce) {
-            return handlePermissionException(address);
         }
     }
 
@@ -53,11 +56,13 @@ public abstract class MappedModules implements ReadWriteMemory {
         try {
             int effectiveAddress = address & (getSize() - 1);
             MappedMemory mappedModule = getMappedModule(effectiveAddress);
+            if (!(mappedModule instanceof WriteOnlyMemory)) {
+                handlePermissionException(address);
+                return;
+            }
             ((WriteOnlyMemory) mappedModule).setByte(effectiveAddress - mappedModule.getStart(), value);
         } catch (BusError be) {
             handleBusError(address, be);
-        } catch (ClassCastException cce) {
-            handlePermissionException(address);
         }
     }
 
@@ -66,11 +71,13 @@ public abstract class MappedModules implements ReadWriteMemory {
         try {
             int effectiveAddress = (address & ~0b1) & (getSize() - 1);
             MappedMemory mappedModule = getMappedModule(effectiveAddress);
+            if (!(mappedModule instanceof WriteOnlyMemory)) {
+                handlePermissionException(address);
+                return;
+            }
             ((WriteOnlyMemory) mappedModule).setHalfWord(effectiveAddress - mappedModule.getStart(), value);
         } catch (BusError be) {
             handleBusError(address, be);
-        } catch (ClassCastException cce) {
-            handlePermissionException(address);
         }
     }
 
@@ -79,11 +86,13 @@ public abstract class MappedModules implements ReadWriteMemory {
         try {
             int effectiveAddress = (address & ~0b11) & (getSize() - 1);
             MappedMemory mappedModule = getMappedModule(effectiveAddress);
+            if (!(mappedModule instanceof WriteOnlyMemory)) {
+                handlePermissionException(address);
+                return;
+            }
             ((WriteOnlyMemory) mappedModule).setWord(effectiveAddress - mappedModule.getStart(), value);
         } catch (BusError be) {
             handleBusError(address, be);
-        } catch (ClassCastException cce) {
-            handlePermissionException(address);
         }
     }
 
@@ -96,4 +105,15 @@ public abstract class MappedModules implements ReadWriteMemory {
     }
 
     protected abstract MappedMemory getMappedModule(int address);
+
+    /**
+     * Returns the module mapped over the whole range, or this if the range is split between several modules.
+     */
+    public MappedMemory getMappedModule(int start, int size) {
+        MappedMemory module = getMappedModule(start);
+        if (start >= module.getStart() && start + size <= module.getStart() + module.getSize()) {
+            return module;
+        }
+        return this;
+    }
 }
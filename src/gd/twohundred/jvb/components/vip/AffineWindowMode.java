@@ -1,6 +1,5 @@
 package gd.twohundred.jvb.components.vip;
 
-import gd.twohundred.jvb.FixedPoint;
 import gd.twohundred.jvb.Logger;
 
 import static gd.twohundred.jvb.Utils.signExtend;
@@ -30,27 +29,39 @@ public class AffineWindowMode extends BackgroundedWindowMode {
     }
 
     @Override
-    public int getBackgroundY(WindowAttributes window, VirtualImageProcessor vip, int x, int y, boolean left) {
-        return getBackgroundPos(window, vip, x, y, left, BG_Y_INC_OFFSET_SHORTS, BG_Y_OFFSET_SHORTS);
-    }
+    protected void drawRow(WindowAttributes window, VirtualImageProcessor vip, boolean left, int windowY, int screenX, int startWindowX, int endWindowX, int backgroundWidth, int backgroundHeight) {
+        BackgroundSegmentsAndParametersRAM parameterTable = vip.getBackgroundSegmentsAndWindowParameterTable();
+        int parameterBaseAddress = (window.getParameterIndex() + AFFINE_PARAMETER_LEN_SHORTS * windowY) * Short.BYTES;
+        int bgParallax = getParameter(parameterTable, parameterBaseAddress, BG_PARALLAX_OFFSET_SHORTS);
+        int bgXIncrement = getParameter(parameterTable, parameterBaseAddress, BG_X_INC_OFFSET_SHORTS);
+        int bgXOffset = getParameter(parameterTable, parameterBaseAddress, BG_X_OFFSET_SHORTS);
+        int bgYIncrement = getParameter(parameterTable, parameterBaseAddress, BG_Y_INC_OFFSET_SHORTS);
+        int bgYOffset = getParameter(parameterTable, parameterBaseAddress, BG_Y_OFFSET_SHORTS);
+        int startX = startWindowX;
+        if (!((bgParallax < 0) ^ left)) {
+            startX += bgParallax;
+        }
+        // fixed point with INC_FRACTIONAL_BITS, stepped by one increment per pixel
+        long backgroundXAccumulator = (long) bgXIncrement * startX + ((long) bgXOffset << (INC_FRACTIONAL_BITS - BG_FRACTIONAL_BITS));
+        long backgroundYAccumulator = (long) bgYIncrement * startX + ((long) bgYOffset << (INC_FRACTIONAL_BITS - BG_FRACTIONAL_BITS));
 
-    @Override
-    public int getBackgroundX(WindowAttributes window, VirtualImageProcessor vip, int x, int y, boolean left) {
-        return getBackgroundPos(window, vip, x, y, left, BG_X_INC_OFFSET_SHORTS, BG_X_OFFSET_SHORTS);
+        byte[] backgroundPalettes = vip.getControlRegisters().getBackgroundPalettes();
+        FrameBuffer frameBuffer = vip.getCurrentFrameBuffer(left);
+        CharacterRAM characterRam = vip.getCharacterRam();
+        int y = windowY + window.getY();
+        for (int windowX = startWindowX; windowX < endWindowX; windowX++) {
+            int backgroundX = (int) (backgroundXAccumulator >> INC_FRACTIONAL_BITS);
+            int backgroundY = (int) (backgroundYAccumulator >> INC_FRACTIONAL_BITS);
+            int cell = parameterTable.getHalfWord(getCellAddress(window, backgroundX, backgroundY, backgroundWidth, backgroundHeight));
+            int characterX = backgroundX & (CharacterRAM.CHARACTER_WIDTH_PX - 1);
+            int characterY = backgroundY & (CharacterRAM.CHARACTER_HEIGHT_PX - 1);
+            drawCharacterSpan(windowX + screenX, y, characterX, characterY, 1, cell, backgroundPalettes, characterRam, frameBuffer);
+            backgroundXAccumulator += bgXIncrement;
+            backgroundYAccumulator += bgYIncrement;
+        }
     }
 
-    private int getBackgroundPos(WindowAttributes window, VirtualImageProcessor vip, int x, int y, boolean left, int incOffsetShorts, int bgOffsetShorts) {
-        int parameterBaseAddress = (window.getParameterIndex() + AFFINE_PARAMETER_LEN_SHORTS * y) * Short.BYTES;
-        BackgroundSegmentsAndParametersRAM parameterTable = vip.getBackgroundSegmentsAndWindowParameterTable();
-        int bgParallax = signExtend(parameterTable.getHalfWord(parameterBaseAddress + BG_PARALLAX_OFFSET_SHORTS * Short.BYTES), Short.SIZE);
-        int rawBgIncrement = signExtend(parameterTable.getHalfWord(parameterBaseAddress + incOffsetShorts * Short.BYTES), Short.SIZE);
-        int rawBgOffset = signExtend(parameterTable.getHalfWord(parameterBaseAddress + bgOffsetShorts * Short.BYTES), Short.SIZE);
-        FixedPoint bgIncrement = new FixedPoint(rawBgIncrement, INC_FRACTIONAL_BITS);
-        FixedPoint bgOffset = new FixedPoint(rawBgOffset, BG_FRACTIONAL_BITS);
-        if ((bgParallax < 0) ^ left) {
-            return (int) bgIncrement.mul(x).add(bgOffset).roundToLong();
-        } else {
-            return (int) bgIncrement.mul(x + bgParallax).add(bgOffset).roundToLong();
-        }
+    private static int getParameter(BackgroundSegmentsAndParametersRAM parameterTable, int parameterBaseAddress, int offsetShorts) {
+        return signExtend(parameterTable.getHalfWord(parameterBaseAddress + offsetShorts * Short.BYTES), Short.SIZE);
     }
 }
@@ -17,8 +17,6 @@ public abstract class BackgroundedWindowMode extends WindowMode {
         }
         int widthSegments = window.getBackgroundWidthSegments();
         int heightSegments = window.getBackgroundHeightSegments();
-        byte[] backgroundPalettes = vip.getControlRegisters().getBackgroundPalettes();
-        BackgroundSegmentsAndParametersRAM backgroundSegments = vip.getBackgroundSegmentsAndWindowParameterTable();
 
         assert Integer.bitCount(widthSegments) == 1;
         assert Integer.bitCount(heightSegments) == 1;
@@ -31,58 +29,80 @@ public abstract class BackgroundedWindowMode extends WindowMode {
         int endWindowY = min(maxY - window.getY(), window.getActualHeight());
 
         int parallax = left ? -window.getParallax() : window.getParallax();
+        int screenX = window.getX() + parallax;
+        int startWindowX = max(-screenX, 0);
+        int endWindowX = min(Screen.WIDTH - screenX, window.getActualWidth());
+        if (startWindowX >= endWindowX) {
+            return;
+        }
 
         int backgroundWidth = widthSegments * BackgroundSegmentsAndParametersRAM.BACKGROUND_SEGMENT_WIDTH_PX;
         int backgroundHeight = heightSegments * BackgroundSegmentsAndParametersRAM.BACKGROUND_SEGMENT_HEIGHT_PX;
-
-        // TODO: just find the portion of segment/char to draw and use drawChar rather than drawCharPixel
         for (int windowY = startWindowY; windowY < endWindowY; windowY++) {
-            int y = windowY + window.getY();
-            for (int windowX = 0; windowX < window.getActualWidth(); windowX++) {
-                int x = windowX + window.getX() + parallax;
-                if (x >= Screen.WIDTH || x < 0) {
-                    continue;
-                }
-                int backgroundX = getBackgroundX(window, vip, windowX, windowY, left);
-                int backgroundY = getBackgroundY(window, vip, windowX, windowY, left);
-                int cellAddr;
-                if (window.isUseOutOfBoundsCharacter() && (backgroundX < 0 || backgroundX >= backgroundWidth || backgroundY < 0 || backgroundY >= backgroundHeight)) {
-                    // oob char
-                    int segmentIndex = window.getBaseSegmentIndex();
-                    int segmentAddr = segmentIndex * BackgroundSegmentsAndParametersRAM.BACKGROUND_SEGMENT_SIZE;
-                    cellAddr = segmentAddr + window.getOutOfBoundsCharacter() * BackgroundSegmentsAndParametersRAM.BACKGROUND_SEGMENT_CELL_SIZE;
-                } else {
-                    // tile
-                    backgroundY = backgroundY & (widthSegments * BackgroundSegmentsAndParametersRAM.BACKGROUND_SEGMENT_HEIGHT_PX - 1);
-                    backgroundX = backgroundX & (heightSegments * BackgroundSegmentsAndParametersRAM.BACKGROUND_SEGMENT_WIDTH_PX - 1);
-                    int xSegment = backgroundX / BackgroundSegmentsAndParametersRAM.BACKGROUND_SEGMENT_WIDTH_PX;
-                    int ySegment = backgroundY / BackgroundSegmentsAndParametersRAM.BACKGROUND_SEGMENT_HEIGHT_PX;
-                    int segmentIndex = window.getBaseSegmentIndex() + xSegment + ySegment * widthSegments;
-
-                    int segmentAddr = segmentIndex * BackgroundSegmentsAndParametersRAM.BACKGROUND_SEGMENT_SIZE;
-
-                    int segmentX = backgroundX & (BackgroundSegmentsAndParametersRAM.BACKGROUND_SEGMENT_WIDTH_PX - 1);
-                    int segmentY = backgroundY & (BackgroundSegmentsAndParametersRAM.BACKGROUND_SEGMENT_WIDTH_PX - 1);
-                    int segmentXCell = segmentX / CharacterRAM.CHARACTER_WIDTH_PX;
-                    int segmentYCell = segmentY / CharacterRAM.CHARACTER_HEIGHT_PX;
-                    int cellIndex = segmentXCell + segmentYCell * BackgroundSegmentsAndParametersRAM.BACKGROUND_SEGMENT_WIDTH_CELLS;
-                    cellAddr = segmentAddr + cellIndex * BackgroundSegmentsAndParametersRAM.BACKGROUND_SEGMENT_CELL_SIZE;
-                }
-                int characterX = backgroundX & (CharacterRAM.CHARACTER_HEIGHT_PX - 1);
-                int characterY = backgroundY & (CharacterRAM.CHARACTER_WIDTH_PX - 1);
-                int cell = backgroundSegments.getHalfWord(cellAddr);
-                drawCharacterPixel(x, y, characterX, characterY, cell, backgroundPalettes, vip, left);
-            }
+            drawRow(window, vip, left, windowY, screenX, startWindowX, endWindowX, backgroundWidth, backgroundHeight);
+        }
+    }
+
+    /**
+     * Draws the visible part {@code [startWindowX, endWindowX)} of a window row.
+     */
+    protected void drawRow(WindowAttributes window, VirtualImageProcessor vip, boolean left, int windowY, int screenX, int startWindowX, int endWindowX, int backgroundWidth, int backgroundHeight) {
+        byte[] backgroundPalettes = vip.getControlRegisters().getBackgroundPalettes();
+        BackgroundSegmentsAndParametersRAM backgroundSegments = vip.getBackgroundSegmentsAndWindowParameterTable();
+        FrameBuffer frameBuffer = vip.getCurrentFrameBuffer(left);
+        CharacterRAM characterRam = vip.getCharacterRam();
+        int y = windowY + window.getY();
+        // the background moves along with the window on a row: resolve one cell per character span
+        int rowBackgroundX = getRowBackgroundX(window, vip, windowY, left);
+        int backgroundY = getRowBackgroundY(window, vip, windowY, left);
+        int characterY = backgroundY & (CharacterRAM.CHARACTER_HEIGHT_PX - 1);
+        int windowX = startWindowX;
+        while (windowX < endWindowX) {
+            int backgroundX = rowBackgroundX + windowX;
+            int characterX = backgroundX & (CharacterRAM.CHARACTER_WIDTH_PX - 1);
+            int length = min(CharacterRAM.CHARACTER_WIDTH_PX - characterX, endWindowX - windowX);
+            int cell = backgroundSegments.getHalfWord(getCellAddress(window, backgroundX, backgroundY, backgroundWidth, backgroundHeight));
+            drawCharacterSpan(windowX + screenX, y, characterX, characterY, length, cell, backgroundPalettes, characterRam, frameBuffer);
+            windowX += length;
+        }
+    }
+
+    protected static int getCellAddress(WindowAttributes window, int backgroundX, int backgroundY, int backgroundWidth, int backgroundHeight) {
+        int widthSegments = window.getBackgroundWidthSegments();
+        int heightSegments = window.getBackgroundHeightSegments();
+        if (window.isUseOutOfBoundsCharacter() && (backgroundX < 0 || backgroundX >= backgroundWidth || backgroundY < 0 || backgroundY >= backgroundHeight)) {
+            // oob char
+            int segmentIndex = window.getBaseSegmentIndex();
+            int segmentAddr = segmentIndex * BackgroundSegmentsAndParametersRAM.BACKGROUND_SEGMENT_SIZE;
+            return segmentAddr + window.getOutOfBoundsCharacter() * BackgroundSegmentsAndParametersRAM.BACKGROUND_SEGMENT_CELL_SIZE;
         }
+        // tile
+        backgroundY = backgroundY & (widthSegments * BackgroundSegmentsAndParametersRAM.BACKGROUND_SEGMENT_HEIGHT_PX - 1);
+        backgroundX = backgroundX & (heightSegments * BackgroundSegmentsAndParametersRAM.BACKGROUND_SEGMENT_WIDTH_PX - 1);
+        int xSegment = backgroundX / BackgroundSegmentsAndParametersRAM.BACKGROUND_SEGMENT_WIDTH_PX;
+        int ySegment = backgroundY / BackgroundSegmentsAndParametersRAM.BACKGROUND_SEGMENT_HEIGHT_PX;
+        int segmentIndex = window.getBaseSegmentIndex() + xSegment + ySegment * widthSegments;
+
+        int segmentAddr = segmentIndex * BackgroundSegmentsAndParametersRAM.BACKGROUND_SEGMENT_SIZE;
+
+        int segmentX = backgroundX & (BackgroundSegmentsAndParametersRAM.BACKGROUND_SEGMENT_WIDTH_PX - 1);
+        int segmentY = backgroundY & (BackgroundSegmentsAndParametersRAM.BACKGROUND_SEGMENT_WIDTH_PX - 1);
+        int segmentXCell = segmentX / CharacterRAM.CHARACTER_WIDTH_PX;
+        int segmentYCell = segmentY / CharacterRAM.CHARACTER_HEIGHT_PX;
+        int cellIndex = segmentXCell + segmentYCell * BackgroundSegmentsAndParametersRAM.BACKGROUND_SEGMENT_WIDTH_CELLS;
+        return segmentAddr + cellIndex * BackgroundSegmentsAndParametersRAM.BACKGROUND_SEGMENT_CELL_SIZE;
     }
 
-    public int getBackgroundY(WindowAttributes window, VirtualImageProcessor vip, int x, int y, boolean left) {
+    public int getRowBackgroundY(WindowAttributes window, VirtualImageProcessor vip, int y, boolean left) {
         return window.getBackgroundY() + y;
     }
 
-    public int getBackgroundX(WindowAttributes window, VirtualImageProcessor vip, int x, int y, boolean left) {
+    /**
+     * Background x coordinate of the first pixel of window row {@code y}, the rest of the row follows linearly.
+     */
+    public int getRowBackgroundX(WindowAttributes window, VirtualImageProcessor vip, int y, boolean left) {
         int backgroundParallax = left ? -window.getBackgroundParallax() : window.getBackgroundParallax();
-        return window.getBackgroundX() + backgroundParallax + x;
+        return window.getBackgroundX() + backgroundParallax;
     }
 
     private static final int SEGMENT_COUNT = BackgroundSegmentsAndParametersRAM.SIZE / BackgroundSegmentsAndParametersRAM.BACKGROUND_SEGMENT_SIZE;
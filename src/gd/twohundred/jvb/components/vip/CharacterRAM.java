@@ -2,6 +2,8 @@ package gd.twohundred.jvb.components.vip;
 
 import gd.twohundred.jvb.components.PowerOfTwoRam;
 
+import java.util.Arrays;
+
 public class CharacterRAM extends PowerOfTwoRam {
     public static final int START = 0x0007_8000;
     public static final int SIZE = 0x0000_8000;
@@ -9,9 +11,19 @@ public class CharacterRAM extends PowerOfTwoRam {
     public static final int CHARACTER_WIDTH_PX = 8;
     public static final int CHARACTER_HEIGHT_PX = 8;
     public static final int CHARACTER_SIZE = (CHARACTER_WIDTH_PX * CHARACTER_HEIGHT_PX) / FrameBuffer.PIXEL_PER_BYTE;
+    public static final int CHARACTER_ROW_SIZE = CHARACTER_WIDTH_PX / FrameBuffer.PIXEL_PER_BYTE;
+    public static final int CHARACTER_PIXELS = CHARACTER_WIDTH_PX * CHARACTER_HEIGHT_PX;
+    public static final int CHARACTER_COUNT = SIZE / CHARACTER_SIZE;
+
+    // one byte per pixel, row-major, invalidated per character on writes
+    private final byte[] decodedPixels = new byte[CHARACTER_COUNT * CHARACTER_PIXELS];
+    private final boolean[] dirty = new boolean[CHARACTER_COUNT];
+    private boolean anyDirty;
 
     public CharacterRAM() {
         super(SIZE);
+        Arrays.fill(dirty, true);
+        anyDirty = true;
     }
 
     @Override
@@ -23,4 +35,71 @@ public class CharacterRAM extends PowerOfTwoRam {
     public int getSize() {
         return SIZE;
     }
+
+    @Override
+    public void setByte(int address, byte value) {
+        super.setByte(address, value);
+        dirty[getEffectiveAddress(address) / CHARACTER_SIZE] = true;
+        anyDirty = true;
+    }
+
+    @Override
+    public void setHalfWord(int address, short value) {
+        super.setHalfWord(address, value);
+        dirty[getEffectiveAddress(address) / CHARACTER_SIZE] = true;
+        anyDirty = true;
+    }
+
+    @Override
+    public void setWord(int address, int value) {
+        super.setWord(address, value);
+        dirty[getEffectiveAddress(address) / CHARACTER_SIZE] = true;
+        anyDirty = true;
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        Arrays.fill(dirty, true);
+        anyDirty = true;
+    }
+
+    /**
+     * Returns the decoded pixels of all characters, the given character starting at
+     * {@code characterIndex * CHARACTER_PIXELS}. Only that character is guaranteed to be up to date.
+     */
+    public byte[] getDecodedPixels(int characterIndex) {
+        if (dirty[characterIndex]) {
+            decode(characterIndex);
+        }
+        return decodedPixels;
+    }
+
+    /**
+     * Decodes all characters written since they were last decoded, after which reads of the decoded pixels do not mutate
+     * any state until the next write.
+     */
+    public void decodeDirtyCharacters() {
+        if (!anyDirty) {
+            return;
+        }
+        for (int characterIndex = 0; characterIndex < CHARACTER_COUNT; characterIndex++) {
+            if (dirty[characterIndex]) {
+                decode(characterIndex);
+            }
+        }
+        anyDirty = false;
+    }
+
+    private void decode(int characterIndex) {
+        int pixelIndex = characterIndex * CHARACTER_PIXELS;
+        int address = characterIndex * CHARACTER_SIZE;
+        for (int y = 0; y < CHARACTER_HEIGHT_PX; y++, address += CHARACTER_ROW_SIZE) {
+            int row = getHalfWord(address);
+            for (int x = 0; x < CHARACTER_WIDTH_PX; x++, row >>>= FrameBuffer.BITS_PER_PIXEL) {
+                decodedPixels[pixelIndex++] = (byte) (row & 0b11);
+            }
+        }
+        dirty[characterIndex] = false;
+    }
 }
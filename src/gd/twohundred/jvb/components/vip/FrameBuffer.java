@@ -2,7 +2,10 @@ package gd.twohundred.jvb.components.vip;
 
 import gd.twohundred.jvb.components.AbstractRAM;
 
+import java.nio.ByteBuffer;
+
 import static gd.twohundred.jvb.Utils.insertNth;
+import static gd.twohundred.jvb.Utils.setHalfWordLE;
 
 public class FrameBuffer extends AbstractRAM {
     public static final int WIDTH = 384;
@@ -10,6 +13,7 @@ public class FrameBuffer extends AbstractRAM {
     public static final int BITS_PER_PIXEL = 2;
     public static final int PIXEL_PER_BYTE = Byte.SIZE / BITS_PER_PIXEL;
     public static final int SIZE = WIDTH * HEIGHT / PIXEL_PER_BYTE;
+    public static final int COLUMN_SIZE = HEIGHT / PIXEL_PER_BYTE;
     private final int address;
 
     public FrameBuffer(int address) {
@@ -40,6 +44,45 @@ public class FrameBuffer extends AbstractRAM {
         setByte(pixelAddr, (byte) insertNth(color, pixelPos, FrameBuffer.BITS_PER_PIXEL, getByte(pixelAddr)));
     }
 
+    /**
+     * Writes {@code value} at byte {@code offset} of every column.
+     */
+    public void fillColumns(int offset, short value) {
+        if (HEAP_BACKED) {
+            byte[] array = getArray();
+            for (int addr = offset; addr < SIZE; addr += COLUMN_SIZE) {
+                setHalfWordLE(array, addr, value);
+            }
+        } else {
+            ByteBuffer data = getData();
+            for (int addr = offset; addr < SIZE; addr += COLUMN_SIZE) {
+                data.putShort(addr, value);
+            }
+        }
+    }
+
+    /**
+     * Expands the first {@code height} rows of every column to one byte per pixel, column by column. The
+     * {@code PIXEL_PER_BYTE} bytes at {@code lookup[b * PIXEL_PER_BYTE]} are the expansion of framebuffer byte b.
+     */
+    public void expand(byte[] lookup, byte[] pixels, int height) {
+        byte[] array = getArray();
+        ByteBuffer data = getData();
+        int rowBytes = height / PIXEL_PER_BYTE;
+        int pixelAddr = 0;
+        for (int columnAddr = 0; columnAddr < SIZE; columnAddr += COLUMN_SIZE) {
+            for (int addr = columnAddr; addr < columnAddr + rowBytes; addr++) {
+                int b = HEAP_BACKED ? array[addr] & 0xff : data.get(addr) & 0xff;
+                int lookupAddr = b * PIXEL_PER_BYTE;
+                pixels[pixelAddr] = lookup[lookupAddr];
+                pixels[pixelAddr + 1] = lookup[lookupAddr + 1];
+                pixels[pixelAddr + 2] = lookup[lookupAddr + 2];
+                pixels[pixelAddr + 3] = lookup[lookupAddr + 3];
+                pixelAddr += PIXEL_PER_BYTE;
+            }
+        }
+    }
+
     public void clear() {
         for (int i = 0; i < SIZE / Integer.BYTES; i++) {
             setWord(i, 0);
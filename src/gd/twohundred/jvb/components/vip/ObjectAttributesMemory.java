@@ -2,11 +2,18 @@ package gd.twohundred.jvb.components.vip;
 
 import gd.twohundred.jvb.components.PowerOfTwoRam;
 
+import java.util.Arrays;
+
+import static gd.twohundred.jvb.Utils.signExtend;
+import static gd.twohundred.jvb.components.vip.VirtualImageProcessor.DRAWING_BLOCK_COUNT;
+import static gd.twohundred.jvb.components.vip.VirtualImageProcessor.DRAWING_BLOCK_HEIGHT;
+
 public class ObjectAttributesMemory extends PowerOfTwoRam {
     public static final int START = 0x0003E000;
     public static final int SIZE = 0x2000;
 
     public static final int ATTRIBUTES_SIZE = 8;
+    public static final int OBJECT_COUNT = SIZE / ATTRIBUTES_SIZE;
 
     public static final int ATTRIBUTES_X_START = 0;
     public static final int ATTRIBUTES_PARALLAX_LR_START = 2;
@@ -18,8 +25,20 @@ public class ObjectAttributesMemory extends PowerOfTwoRam {
     public static final int PARALLAX_LR_LEFT_POS = 14;
     public static final int PARALLAX_LR_RIGHT_POS = 15;
 
+    private static final int NO_BLOCK = -1;
+
+    // per drawing block, a bit set of the objects whose rows intersect it, updated lazily after writes
+    private final long[][] objectsByBlock = new long[DRAWING_BLOCK_COUNT][OBJECT_COUNT / Long.SIZE];
+    private final int[] firstBlocks = new int[OBJECT_COUNT];
+    private final int[] lastBlocks = new int[OBJECT_COUNT];
+    private final boolean[] dirty = new boolean[OBJECT_COUNT];
+    private boolean anyDirty;
+
     public ObjectAttributesMemory() {
         super(SIZE);
+        Arrays.fill(firstBlocks, NO_BLOCK);
+        Arrays.fill(lastBlocks, NO_BLOCK);
+        markAllDirty();
     }
 
     @Override
@@ -31,4 +50,90 @@ public class ObjectAttributesMemory extends PowerOfTwoRam {
     public int getSize() {
         return SIZE;
     }
+
+    @Override
+    public void setByte(int address, byte value) {
+        super.setByte(address, value);
+        markDirty(address, Byte.BYTES);
+    }
+
+    @Override
+    public void setHalfWord(int address, short value) {
+        super.setHalfWord(address, value);
+        markDirty(address, Short.BYTES);
+    }
+
+    @Override
+    public void setWord(int address, int value) {
+        super.setWord(address, value);
+        markDirty(address, Integer.BYTES);
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        markAllDirty();
+    }
+
+    private void markDirty(int address, int size) {
+        int effectiveAddress = getEffectiveAddress(address);
+        dirty[effectiveAddress / ATTRIBUTES_SIZE] = true;
+        dirty[(effectiveAddress + size - 1) / ATTRIBUTES_SIZE] = true;
+        anyDirty = true;
+    }
+
+    private void markAllDirty() {
+        Arrays.fill(dirty, true);
+        anyDirty = true;
+    }
+
+    /**
+     * Returns a bit set, indexed by object index, of the objects with at least one row in the given drawing block.
+     */
+    public long[] getObjectsInBlock(int block) {
+        updateDirtyObjects();
+        return objectsByBlock[block];
+    }
+
+    public void updateDirtyObjects() {
+        if (!anyDirty) {
+            return;
+        }
+        for (int objectIndex = 0; objectIndex < OBJECT_COUNT; objectIndex++) {
+            if (dirty[objectIndex]) {
+                updateBlocks(objectIndex);
+                dirty[objectIndex] = false;
+            }
+        }
+        anyDirty = false;
+    }
+
+    private void updateBlocks(int objectIndex) {
+        int y = signExtend(getHalfWord(objectIndex * ATTRIBUTES_SIZE + ATTRIBUTES_Y_START), Short.SIZE);
+        int firstY = Math.max(y, 0);
+        int lastY = Math.min(y + CharacterRAM.CHARACTER_HEIGHT_PX, DRAWING_BLOCK_COUNT * DRAWING_BLOCK_HEIGHT) - 1;
+        int firstBlock = NO_BLOCK;
+        int lastBlock = NO_BLOCK;
+        if (firstY <= lastY) {
+            firstBlock = firstY / DRAWING_BLOCK_HEIGHT;
+            lastBlock = lastY / DRAWING_BLOCK_HEIGHT;
+        }
+        if (firstBlock == firstBlocks[objectIndex] && lastBlock == lastBlocks[objectIndex]) {
+            return;
+        }
+        int word = objectIndex / Long.SIZE;
+        long bit = 1L << objectIndex;
+        if (firstBlocks[objectIndex] != NO_BLOCK) {
+            for (int block = firstBlocks[objectIndex]; block <= lastBlocks[objectIndex]; block++) {
+                objectsByBlock[block][word] &= ~bit;
+            }
+        }
+        if (firstBlock != NO_BLOCK) {
+            for (int block = firstBlock; block <= lastBlock; block++) {
+                objectsByBlock[block][word] |= bit;
+            }
+        }
+        firstBlocks[objectIndex] = firstBlock;
+        lastBlocks[objectIndex] = lastBlock;
+    }
 }
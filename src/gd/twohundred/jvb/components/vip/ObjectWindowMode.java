@@ -10,6 +10,8 @@ import static gd.twohundred.jvb.Utils.extractU;
 import static gd.twohundred.jvb.Utils.signExtend;
 import static gd.twohundred.jvb.Utils.testBit;
 import static gd.twohundred.jvb.components.vip.VirtualImageProcessor.DRAWING_BLOCK_HEIGHT;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
 
 public class ObjectWindowMode extends WindowMode {
     public static final ObjectWindowMode INSTANCE = new ObjectWindowMode();
@@ -28,40 +30,54 @@ public class ObjectWindowMode extends WindowMode {
         int currentYBlock = vip.getControlRegisters().getCurrentYBlock();
         int minY = currentYBlock * DRAWING_BLOCK_HEIGHT;
         int maxY = minY + DRAWING_BLOCK_HEIGHT;
+        FrameBuffer frameBuffer = vip.getCurrentFrameBuffer(left);
+        CharacterRAM characterRam = vip.getCharacterRam();
+        long[] blockObjects = oam.getObjectsInBlock(currentYBlock);
+
+        // only visit the objects of the group that intersect this block, from the highest index down
+        for (int word = objectIndex / Long.SIZE; word >= lastObjectIndex / Long.SIZE; word--) {
+            long objects = blockObjects[word];
+            while (objects != 0) {
+                int bit = Long.SIZE - 1 - Long.numberOfLeadingZeros(objects);
+                objects &= ~(1L << bit);
+                int index = word * Long.SIZE + bit;
+                if (index > objectIndex) {
+                    continue;
+                }
+                if (index < lastObjectIndex) {
+                    break;
+                }
+                drawObject(oam, index, minY, maxY, objectPalettes, characterRam, frameBuffer, left);
+            }
+        }
+    }
 
-        while (objectIndex >= lastObjectIndex) {
-            int objectAddr = objectIndex * ObjectAttributesMemory.ATTRIBUTES_SIZE;
-            int parallaxLR = oam.getHalfWord(objectAddr + ObjectAttributesMemory.ATTRIBUTES_PARALLAX_LR_START);
-            int parallax = extractS(parallaxLR, ObjectAttributesMemory.PARALLAX_LR_PARALLAX_POS, ObjectAttributesMemory.PARALLAX_LR_PARALLAX_LEN);
-            boolean drawLeft = testBit(parallaxLR, ObjectAttributesMemory.PARALLAX_LR_LEFT_POS);
-            boolean drawRight = testBit(parallaxLR, ObjectAttributesMemory.PARALLAX_LR_RIGHT_POS);
+    private void drawObject(ObjectAttributesMemory oam, int objectIndex, int minY, int maxY, byte[] objectPalettes, CharacterRAM characterRam, FrameBuffer frameBuffer, boolean left) {
+        int objectAddr = objectIndex * ObjectAttributesMemory.ATTRIBUTES_SIZE;
+        int parallaxLR = oam.getHalfWord(objectAddr + ObjectAttributesMemory.ATTRIBUTES_PARALLAX_LR_START);
+        int parallax = extractS(parallaxLR, ObjectAttributesMemory.PARALLAX_LR_PARALLAX_POS, ObjectAttributesMemory.PARALLAX_LR_PARALLAX_LEN);
+        boolean drawLeft = testBit(parallaxLR, ObjectAttributesMemory.PARALLAX_LR_LEFT_POS);
+        boolean drawRight = testBit(parallaxLR, ObjectAttributesMemory.PARALLAX_LR_RIGHT_POS);
 
-            if ((left && !drawLeft) || (!left && !drawRight)) {
-                objectIndex--;
-                continue;
-            }
+        if ((left && !drawLeft) || (!left && !drawRight)) {
+            return;
+        }
 
-            int parallaxX = left ? -parallax : parallax;
+        int parallaxX = left ? -parallax : parallax;
 
-            int x = signExtend(oam.getHalfWord(objectAddr + ObjectAttributesMemory.ATTRIBUTES_X_START), Short.SIZE);
-            int y = signExtend(oam.getHalfWord(objectAddr + ObjectAttributesMemory.ATTRIBUTES_Y_START), Short.SIZE);
-            int cell = oam.getHalfWord(objectAddr + ObjectAttributesMemory.ATTRIBUTES_CELL_START);
+        int x = signExtend(oam.getHalfWord(objectAddr + ObjectAttributesMemory.ATTRIBUTES_X_START), Short.SIZE) + parallaxX;
+        int y = signExtend(oam.getHalfWord(objectAddr + ObjectAttributesMemory.ATTRIBUTES_Y_START), Short.SIZE);
+        int cell = oam.getHalfWord(objectAddr + ObjectAttributesMemory.ATTRIBUTES_CELL_START);
 
-            // TODO: just find the portion of character to draw and use drawChar rather than drawCharPixel
-            for (int characterY = 0; characterY < CharacterRAM.CHARACTER_HEIGHT_PX; characterY++) {
-                int screenY = y + characterY;
-                if (screenY >= maxY || screenY < minY) {
-                    continue;
-                }
-                for (int characterX = 0; characterX < CharacterRAM.CHARACTER_WIDTH_PX; characterX++) {
-                    int screenX = x + characterX + parallaxX;
-                    if (screenX >= Screen.WIDTH || screenX < 0) {
-                        continue;
-                    }
-                    drawCharacterPixel(screenX, screenY, characterX, characterY, cell, objectPalettes, vip, left);
-                }
-            }
-            objectIndex--;
+        int startCharacterX = max(-x, 0);
+        int endCharacterX = min(Screen.WIDTH - x, CharacterRAM.CHARACTER_WIDTH_PX);
+        if (startCharacterX >= endCharacterX) {
+            return;
+        }
+        int startCharacterY = max(minY - y, 0);
+        int endCharacterY = min(maxY - y, CharacterRAM.CHARACTER_HEIGHT_PX);
+        for (int characterY = startCharacterY; characterY < endCharacterY; characterY++) {
+            drawCharacterSpan(x + startCharacterX, y + characterY, startCharacterX, characterY, endCharacterX - startCharacterX, cell, objectPalettes, characterRam, frameBuffer);
         }
     }
 
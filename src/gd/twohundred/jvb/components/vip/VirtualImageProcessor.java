@@ -4,7 +4,6 @@ import gd.twohundred.jvb.BusError;
 import gd.twohundred.jvb.Logger;
 import gd.twohundred.jvb.RenderedFrame;
 import gd.twohundred.jvb.components.cpu.CPU;
-import gd.twohundred.jvb.components.SimpleInterrupt;
 import gd.twohundred.jvb.components.interfaces.ExactlyEmulable;
 import gd.twohundred.jvb.components.interfaces.Interrupt;
 import gd.twohundred.jvb.components.interfaces.InterruptSource;
@@ -16,6 +15,8 @@ import gd.twohundred.jvb.components.utils.WarningMemory;
 import gd.twohundred.jvb.components.vip.VIPControlRegisters.VIPInterruptType;
 
 import java.awt.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import static gd.twohundred.jvb.BusError.Reason.Unmapped;
 import static gd.twohundred.jvb.Utils.NANOS_PER_SECOND;
@@ -25,6 +26,7 @@ import static gd.twohundred.jvb.components.interfaces.Screen.WIDTH;
 import static gd.twohundred.jvb.components.vip.VirtualImageProcessor.DisplayState.LeftFrameBuffer;
 import static gd.twohundred.jvb.components.vip.VirtualImageProcessor.DisplayState.RightFrameBuffer;
 import static gd.twohundred.jvb.components.vip.VirtualImageProcessor.DisplayState.Waiting;
+import static java.lang.Math.max;
 import static java.lang.Math.min;
 
 public class VirtualImageProcessor extends MappedModules implements ExactlyEmulable, InterruptSource {
@@ -62,6 +64,9 @@ public class VirtualImageProcessor extends MappedModules implements ExactlyEmula
     private final LinearMemoryMirroring chrTable3Mirror = new LinearMemoryMirroring(characterRAM, 0x0001E000, 0x6000, 0x2000);
 
     public static final boolean DEBUG_GRAPHICS = false;
+    // draw the two eyes of a window concurrently
+    public static final boolean PARALLEL_EYES = Boolean.getBoolean("jvb.vip.parallel");
+    private static final ForkJoinPool EYE_POOL = PARALLEL_EYES ? new ForkJoinPool(1) : null;
 
     public static final long FRAME_PERIOD = CPU.CLOCK_HZ / Screen.DISPLAY_REFRESH_RATE_HZ;
 
@@ -76,16 +81,23 @@ public class VirtualImageProcessor extends MappedModules implements ExactlyEmula
     private static final long MAX_FRAME_BUFFER_DISPLAY_CYCLES = CPU.CLOCK_HZ * MAX_FRAME_BUFFER_DISPLAY_TIME_NS / NANOS_PER_SECOND;
     private static final long RIGHT_DISPLAY_START_CYCLE = FRAME_PERIOD - (10 + MAX_FRAME_BUFFER_DISPLAY_CYCLES);
     private static final long LEFT_DISPLAY_START_CYCLE = RIGHT_DISPLAY_START_CYCLE - (10 + MAX_FRAME_BUFFER_DISPLAY_CYCLES);
+    private static final long LEFT_DISPLAY_END_CYCLE = LEFT_DISPLAY_START_CYCLE + MAX_FRAME_BUFFER_DISPLAY_CYCLES;
+    private static final long RIGHT_DISPLAY_END_CYCLE = RIGHT_DISPLAY_START_CYCLE + MAX_FRAME_BUFFER_DISPLAY_CYCLES;
 
     static final int DRAWING_WINDOW_COUNT = 32;
     static final int DRAWING_BLOCK_HEIGHT = 8;
     static final int DRAWING_BLOCK_COUNT = Screen.HEIGHT / DRAWING_BLOCK_HEIGHT;
+    private static final long DRAWING_FINISHED = -1;
 
     private final RenderedFrame leftRendered = new RenderedFrame();
     private final RenderedFrame rightRendered = new RenderedFrame();
+    private final byte[] intensities = new byte[1 << FrameBuffer.BITS_PER_PIXEL];
+    private final byte[] intensityLookup = new byte[(1 << Byte.SIZE) * FrameBuffer.PIXEL_PER_BYTE];
     private long displayCycles;
     private long nextDrawingTickCycles;
     private long frameCounter;
+    // whether the current frame was already sent to the screen, which happens once per frame
+    private boolean framePresented;
     private DrawingState drawingState;
     private DisplayState displayState;
     private Screen.DebugDrawer debugDrawer;
@@ -97,6 +109,9 @@ public class VirtualImageProcessor extends MappedModules implements ExactlyEmula
     private FrameBuffer currentRight = rightFb1;
     private FrameBuffer currentLeft = leftFb1;
 
+    private boolean deferredDrawing;
+    private boolean frameDrawn;
+
     public VirtualImageProcessor(Screen screen, Logger logger) {
         this.screen = screen;
         this.logger = logger;
@@ -113,23 +128,17 @@ public class VirtualImageProcessor extends MappedModules implements ExactlyEmula
     }
 
     private RenderedFrame renderFrameBuffer(FrameBuffer fb, RenderedFrame frame) {
-        int fbAddr = 0;
-        int imageAddr = 0;
-        byte[] intensities = new byte[]{
-                0,
-                (byte) controlRegs.getLedBrightness1(),
-                (byte) controlRegs.getLedBrightness2(),
-                (byte) min(255, (controlRegs.getLedBrightness1() & 0xff) + (controlRegs.getLedBrightness2() & 0xff) + (controlRegs.getLedBrightness3() & 0xff))
-        };
-        for (int col = 0; col < WIDTH; col++) {
-            for (int row = 0; row < HEIGHT / FrameBuffer.PIXEL_PER_BYTE; row++) {
-                int b = fb.getByte(fbAddr++);
-                for (int j = 0; j < FrameBuffer.PIXEL_PER_BYTE; j++, b >>= FrameBuffer.BITS_PER_PIXEL) {
-                    frame.setPixel(imageAddr++, intensities[b & ((1 << FrameBuffer.BITS_PER_PIXEL) - 1)]);
-                }
+        intensities[1] = (byte) controlRegs.getLedBrightness1();
+        intensities[2] = (byte) controlRegs.getLedBrightness2();
+        intensities[3] = (byte) min(255, (controlRegs.getLedBrightness1() & 0xff) + (controlRegs.getLedBrightness2() & 0xff) + (controlRegs.getLedBrightness3() & 0xff));
+        // expansion of every framebuffer byte into its 4 pixel intensities
+        int lookupAddr = 0;
+        for (int b = 0; b < 1 << Byte.SIZE; b++) {
+            for (int j = 0; j < FrameBuffer.PIXEL_PER_BYTE; j++) {
+                intensityLookup[lookupAddr++] = intensities[(b >> (j * FrameBuffer.BITS_PER_PIXEL)) & ((1 << FrameBuffer.BITS_PER_PIXEL) - 1)];
             }
-            fbAddr += (FrameBuffer.HEIGHT - Screen.HEIGHT) / FrameBuffer.PIXEL_PER_BYTE;
         }
+        fb.expand(intensityLookup, frame.getData(), HEIGHT);
         return frame;
     }
 
@@ -165,8 +174,7 @@ public class VirtualImageProcessor extends MappedModules implements ExactlyEmula
                 } else {
                     leftRendered.clear();
                 }
-            } else if (displayCycles == LEFT_DISPLAY_START_CYCLE + MAX_FRAME_BUFFER_DISPLAY_CYCLES) {
-                screen.update(leftRendered, rightRendered, debugDrawer);
+            } else if (displayCycles == LEFT_DISPLAY_END_CYCLE) {
                 controlRegs.setDisplayingFrameBufferPair(currentFbPair(), true, false);
                 interrupt(VIPInterruptType.LeftDisplayFinished); // TODO should this fire when display is disabled?
             } else if (displayCycles == RIGHT_DISPLAY_START_CYCLE) {
@@ -177,8 +185,11 @@ public class VirtualImageProcessor extends MappedModules implements ExactlyEmula
                 } else {
                     rightRendered.clear();
                 }
-            } else if (displayCycles == RIGHT_DISPLAY_START_CYCLE + MAX_FRAME_BUFFER_DISPLAY_CYCLES) {
-                screen.update(leftRendered, rightRendered, debugDrawer);
+            } else if (displayCycles == RIGHT_DISPLAY_END_CYCLE) {
+                if (!framePresented) {
+                    screen.update(leftRendered, rightRendered, debugDrawer);
+                    framePresented = true;
+                }
                 controlRegs.setDisplayingFrameBufferPair(currentFbPair(), false, false);
                 interrupt(VIPInterruptType.RightDisplayFinished); // TODO should this fire when display is disabled?
                 displayState = DisplayState.Finished;
@@ -186,9 +197,37 @@ public class VirtualImageProcessor extends MappedModules implements ExactlyEmula
             if (drawingState != DrawingState.Finished) {
                 tickDrawing();
             }
-            cyclesToConsume--;
-            displayCycles++;
+            long skippedCycles = min(cyclesToConsume, nextEventCycles(displayCycles + 1) - displayCycles);
+            cyclesToConsume -= skippedCycles;
+            displayCycles += skippedCycles;
+        }
+    }
+
+    private long nextEventCycles(long from) {
+        long next;
+        if (from <= LEFT_DISPLAY_START_CYCLE) {
+            next = LEFT_DISPLAY_START_CYCLE;
+        } else if (from <= LEFT_DISPLAY_END_CYCLE) {
+            next = LEFT_DISPLAY_END_CYCLE;
+        } else if (from <= RIGHT_DISPLAY_START_CYCLE) {
+            next = RIGHT_DISPLAY_START_CYCLE;
+        } else if (from <= RIGHT_DISPLAY_END_CYCLE) {
+            next = RIGHT_DISPLAY_END_CYCLE;
+        } else {
+            next = FRAME_PERIOD;
+        }
+        if (drawingState != DrawingState.Finished) {
+            next = min(next, max(from, nextDrawingTickCycles));
+        }
+        return next;
+    }
+
+    @Override
+    public long cyclesUntilNextEvent() {
+        if (displayState == DisplayState.Finished) {
+            return FRAME_PERIOD - displayCycles + 1;
         }
+        return nextEventCycles(displayCycles) - displayCycles + 1;
     }
 
     private void interrupt(VIPInterruptType type) {
@@ -205,10 +244,12 @@ public class VirtualImageProcessor extends MappedModules implements ExactlyEmula
     }
 
     private void startDisplay() {
+        framePresented = false;
         if (!controlRegs.isDisplayEnabled()) {
             leftRendered.clear();
             rightRendered.clear();
             screen.update(leftRendered, rightRendered, debugDrawer);
+            framePresented = true;
             interrupt(VIPInterruptType.StartFrameProcessing);
         }
         controlRegs.setDisplayProcStart();
@@ -233,7 +274,25 @@ public class VirtualImageProcessor extends MappedModules implements ExactlyEmula
             nextDrawingTickCycles = DRAWING_INIT_CYCLES;
             setCurrentYBlock(0);
             currentWindowId = DRAWING_WINDOW_COUNT - 1;
+            frameDrawn = deferredDrawing;
+            if (deferredDrawing) {
+                drawFrame();
+            }
+        }
+    }
+
+    /**
+     * Draws all blocks of the frame at once from the current VRAM contents. The drawing ticks then walk the same
+     * blocks and windows again without drawing, for their timing and interrupts.
+     */
+    private void drawFrame() {
+        int clearColor = latchedClearColor;
+        while (drawingStep(true) != DRAWING_FINISHED) {
+            // draw the whole frame
         }
+        controlRegs.setCurrentYBlock(0);
+        currentWindowId = DRAWING_WINDOW_COUNT - 1;
+        latchedClearColor = clearColor;
     }
 
     private void swapBuffers() {
@@ -259,36 +318,93 @@ public class VirtualImageProcessor extends MappedModules implements ExactlyEmula
         if (displayCycles < nextDrawingTickCycles) {
             return;
         }
-        int currentYBlock = controlRegs.getCurrentYBlock();
+        int previousYBlock = controlRegs.getCurrentYBlock();
+        long cycles = drawingStep(!frameDrawn);
+        if (cycles == DRAWING_FINISHED) {
+            endDrawing();
+            return;
+        }
+        if (controlRegs.getCurrentYBlock() != previousYBlock) {
+            setCurrentYBlock(controlRegs.getCurrentYBlock());
+        }
+        nextDrawingTickCycles += cycles;
+    }
+
+    /**
+     * One step of the block and window walk shared by cycle-by-cycle and whole-frame drawing: moves to the next block
+     * once the current one reached a stop window, clears the block and latches the clear colour when starting a block,
+     * then draws the current window if {@code render}. Returns the cycles taken or {@link #DRAWING_FINISHED} once all
+     * blocks are done.
+     */
+    private long drawingStep(boolean render) {
+        long cycles = 0;
         if (currentWindowId < 0 || getCurrentWindow().isStop()) {
-            int nextBlock = currentYBlock + 1;
+            int nextBlock = controlRegs.getCurrentYBlock() + 1;
             if (nextBlock >= DRAWING_BLOCK_COUNT) {
-                endDrawing();
-                return;
-            } else {
-                setCurrentYBlock(nextBlock);
-                currentWindowId = DRAWING_WINDOW_COUNT - 1;
+                return DRAWING_FINISHED;
             }
+            controlRegs.setCurrentYBlock(nextBlock);
+            currentWindowId = DRAWING_WINDOW_COUNT - 1;
         }
         if (currentWindowId == DRAWING_WINDOW_COUNT - 1) {
-            clearCurrentBlock();
+            if (render) {
+                clearCurrentBlock();
+            }
             latchedClearColor = controlRegs.getClearColor();
             currentObjectGroup = 3;
-            nextDrawingTickCycles += DRAWING_BLOCK_CLEAR_CYCLES;
+            cycles += DRAWING_BLOCK_CLEAR_CYCLES;
         }
         WindowAttributes window = getCurrentWindow();
         if (window.isStop()) {
-            return;
-        }
-        if (window.isDrawLeft()) {
-            window.getMode().draw(window, this, true);
+            return cycles;
         }
-        if (window.isDrawRight()) {
-            window.getMode().draw(window, this, false);
+        if (render) {
+            drawWindow(window);
         }
         window.getMode().onFinished(window, this);
         currentWindowId--;
-        nextDrawingTickCycles += window.getMode().cycles();
+        return cycles + window.getMode().cycles();
+    }
+
+    private void drawWindow(WindowAttributes window) {
+        if (PARALLEL_EYES && window.isDrawLeft() && window.isDrawRight()) {
+            drawEyesInParallel(window);
+        } else {
+            if (window.isDrawLeft()) {
+                window.getMode().draw(window, this, true);
+            }
+            if (window.isDrawRight()) {
+                window.getMode().draw(window, this, false);
+            }
+        }
+    }
+
+    private void drawEyesInParallel(WindowAttributes window) {
+        // the eyes only share read-only state once the lazily derived caches are up to date
+        characterRAM.decodeDirtyCharacters();
+        oam.updateDirtyObjects();
+        WindowMode mode = window.getMode();
+        ForkJoinTask<RuntimeException> left = EYE_POOL.submit(() -> {
+            try {
+                mode.draw(window, this, true);
+                return null;
+            } catch (RuntimeException e) {
+                return e;
+            }
+        });
+        RuntimeException rightError = null;
+        try {
+            mode.draw(window, this, false);
+        } catch (RuntimeException e) {
+            rightError = e;
+        }
+        RuntimeException leftError = left.join();
+        if (leftError != null) {
+            throw leftError;
+        }
+        if (rightError != null) {
+            throw rightError;
+        }
     }
 
     private void endDrawing() {
@@ -331,11 +447,9 @@ public class VirtualImageProcessor extends MappedModules implements ExactlyEmula
     private void clearCurrentBlock() {
         short clearHalfWord = (short) repeat(latchedClearColor, FrameBuffer.BITS_PER_PIXEL, Short.SIZE);
         int currentYBlock = controlRegs.getCurrentYBlock();
-        for (int col = 0; col < FrameBuffer.WIDTH; col++) {
-            int addr = col * FrameBuffer.HEIGHT / FrameBuffer.PIXEL_PER_BYTE + currentYBlock * DRAWING_BLOCK_HEIGHT / FrameBuffer.PIXEL_PER_BYTE;
-            currentLeft.setHalfWord(addr, clearHalfWord);
-            currentRight.setHalfWord(addr, clearHalfWord);
-        }
+        int offset = currentYBlock * DRAWING_BLOCK_HEIGHT / FrameBuffer.PIXEL_PER_BYTE;
+        currentLeft.fillColumns(offset, clearHalfWord);
+        currentRight.fillColumns(offset, clearHalfWord);
     }
 
     public void resetDisplay() {
@@ -367,12 +481,21 @@ public class VirtualImageProcessor extends MappedModules implements ExactlyEmula
         displayCycles = 0;
         controlRegs.setDrawingFrameBufferPair(0, false);
         frameCounter = 0;
+        framePresented = false;
         currentWindowId = -1;
         latchedClearColor = 0;
         leftRendered.clear();
         rightRendered.clear();
     }
 
+    /**
+     * Render each frame at once when drawing starts instead of window by window. Only safe for games that do not update
+     * VRAM while the VIP is drawing.
+     */
+    public void setDeferredDrawing(boolean deferredDrawing) {
+        this.deferredDrawing = deferredDrawing;
+    }
+
     public BackgroundSegmentsAndParametersRAM getBackgroundSegmentsAndWindowParameterTable() {
         return backgroundSegmentsAndWindowParameterTable;
     }
@@ -382,11 +505,11 @@ public class VirtualImageProcessor extends MappedModules implements ExactlyEmula
     }
 
     @Override
-    public Interrupt raised() {
+    public int raised() {
         if (controlRegs.hasPendingInterrupts()) {
-            return new SimpleInterrupt(Interrupt.InterruptType.VIP);
+            return Interrupt.InterruptType.VIP.getMask();
         }
-        return null;
+        return 0;
     }
 
     public long getDisplayCycles() {
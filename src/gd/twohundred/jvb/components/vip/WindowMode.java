@@ -43,35 +43,31 @@ public abstract class WindowMode {
 
     }
 
-    public void drawCharacterPixel(int x, int y, int characterX, int characterY, int cell, byte[] palettes, VirtualImageProcessor vip, boolean left) {
+    void drawCharacterSpan(int x, int y, int characterX, int characterY, int length, int cell, byte[] palettes, CharacterRAM characterRam, FrameBuffer frameBuffer) {
         int characterIndex = extractU(cell, CELL_CHARACTER_POS, CELL_CHARACTER_LEN);
         int paletteId = extractU(cell, CELL_PALETTE_INDEX_POS, CELL_PALETTE_INDEX_LEN);
         int palette = palettes[paletteId] & 0b11_11_11_00;
-        int effectiveCharacterX = characterX;
         int effectiveCharacterY = characterY;
-        if (testBit(cell, CELL_HORIZONTAL_FLIP_POS)) {
-            effectiveCharacterX = CharacterRAM.CHARACTER_WIDTH_PX - effectiveCharacterX - 1;
-        }
         if (testBit(cell, CELL_VERTICAL_FLIP_POS)) {
             effectiveCharacterY = CharacterRAM.CHARACTER_HEIGHT_PX - effectiveCharacterY - 1;
         }
-        int charPixelIndex = effectiveCharacterX + effectiveCharacterY * CharacterRAM.CHARACTER_WIDTH_PX;
-        if (charPixelIndex < 0) {
-            trap();
+        byte[] pixels = characterRam.getDecodedPixels(characterIndex);
+        int pixelIndex = characterIndex * CharacterRAM.CHARACTER_PIXELS + effectiveCharacterY * CharacterRAM.CHARACTER_WIDTH_PX;
+        int step = 1;
+        if (testBit(cell, CELL_HORIZONTAL_FLIP_POS)) {
+            pixelIndex += CharacterRAM.CHARACTER_WIDTH_PX - characterX - 1;
+            step = -1;
+        } else {
+            pixelIndex += characterX;
         }
-        int charPixelByteAddr = characterIndex * CharacterRAM.CHARACTER_SIZE + charPixelIndex / FrameBuffer.PIXEL_PER_BYTE;
-        int pixel = extractNthU(vip.getCharacterRam().getByte(charPixelByteAddr), charPixelIndex % FrameBuffer.PIXEL_PER_BYTE, FrameBuffer.BITS_PER_PIXEL);
-        if (pixel != 0) {
-            int color = extractNthU(palette, pixel, FrameBuffer.BITS_PER_PIXEL);
-            FrameBuffer frameBuffer = vip.getCurrentFrameBuffer(left);
-            frameBuffer.setPixel(x, y, color);
+        for (int i = 0; i < length; i++, pixelIndex += step) {
+            int pixel = pixels[pixelIndex];
+            if (pixel != 0) {
+                frameBuffer.setPixel(x + i, y, extractNthU(palette, pixel, FrameBuffer.BITS_PER_PIXEL));
+            }
         }
     }
 
-    private void trap() {
-        int i = 0;
-    }
-
     public abstract int getId();
 
     public long cycles() {
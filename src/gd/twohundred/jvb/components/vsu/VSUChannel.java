@@ -10,6 +10,8 @@ import static gd.twohundred.jvb.Utils.extractU;
 import static gd.twohundred.jvb.Utils.insert;
 import static gd.twohundred.jvb.Utils.mask;
 import static gd.twohundred.jvb.Utils.testBit;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
 
 public abstract class VSUChannel implements WriteOnlyMemory, ExactlyEmulable {
     private static final int PLAY_CONTROL_START = 0x00;
@@ -236,6 +238,15 @@ public abstract class VSUChannel implements WriteOnlyMemory, ExactlyEmulable {
 
     @Override
     public void tickExact(long cycles) {
+        // stop at each of this channel's events so that the outcome does not depend on how cycles are batched
+        while (cycles > 0) {
+            long step = min(cycles, cyclesUntilNextEvent());
+            advance(step);
+            cycles -= step;
+        }
+    }
+
+    protected void advance(long cycles) {
         if (enableEnvelope()) {
             cyclesSinceLastEnvelopeStep += cycles;
             long cyclesPerEnvelopeStep = getCyclesPerEnvelopeStep();
@@ -266,6 +277,14 @@ public abstract class VSUChannel implements WriteOnlyMemory, ExactlyEmulable {
         }
     }
 
+    @Override
+    public long cyclesUntilNextEvent() {
+        if (isEnabled() && useDuration()) {
+            return max(1, durationCyclesRemaining);
+        }
+        return NO_EVENT;
+    }
+
     protected abstract byte sample();
 
     public long getCyclesPerSample() {
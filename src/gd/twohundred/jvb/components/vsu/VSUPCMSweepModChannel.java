@@ -7,6 +7,8 @@ import static gd.twohundred.jvb.Utils.extractU;
 import static gd.twohundred.jvb.Utils.log2;
 import static gd.twohundred.jvb.Utils.mask;
 import static gd.twohundred.jvb.Utils.testBit;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
 
 public class VSUPCMSweepModChannel extends VSUPCMChannel {
     private static final int SWEEP_DATA_START = 0x1c;
@@ -107,8 +109,8 @@ public class VSUPCMSweepModChannel extends VSUPCMChannel {
     }
 
     @Override
-    public void tickExact(long cycles) {
-        super.tickExact(cycles);
+    protected void advance(long cycles) {
+        super.advance(cycles);
         if (modificationInterval != 0) {
             long cyclesPerModification = modificationInterval * modificationBaseInterval.getModificationBaseIntervalCycles();
             cyclesSinceLastModification += cycles;
@@ -141,6 +143,16 @@ public class VSUPCMSweepModChannel extends VSUPCMChannel {
         }
     }
 
+    @Override
+    public long cyclesUntilNextEvent() {
+        long cyclesUntilNextEvent = super.cyclesUntilNextEvent();
+        if (modificationInterval != 0) {
+            long cyclesPerModification = modificationInterval * modificationBaseInterval.getModificationBaseIntervalCycles();
+            cyclesUntilNextEvent = min(cyclesUntilNextEvent, max(1, cyclesPerModification - cyclesSinceLastModification + 1));
+        }
+        return cyclesUntilNextEvent;
+    }
+
     @Override
     public void reset() {
         super.reset();
@@ -8,11 +8,15 @@ import gd.twohundred.jvb.components.interfaces.MappedMemory;
 import gd.twohundred.jvb.components.utils.MappedModules;
 import gd.twohundred.jvb.components.utils.WarningMemory;
 
+import java.util.Arrays;
+
 import static gd.twohundred.jvb.Utils.mask;
 import static gd.twohundred.jvb.Utils.testBit;
+import static java.lang.Math.min;
 
 public class VirtualSoundUnit extends MappedModules implements ExactlyEmulable {
     public static final long CYCLES_PER_OUTPUT_SAMPLE = CPU.CLOCK_HZ * 10 / AudioOut.OUTPUT_SAMPLING_DECIHZ;
+    private static final int BLOCK_SAMPLES = 256;
 
     public static final int START = 0x01000000;
     public static final int MAPPED_SIZE = 0x01000000;
@@ -50,6 +54,9 @@ public class VirtualSoundUnit extends MappedModules implements ExactlyEmulable {
     private final VSUNoiseChannel noiseChannel;
     private final VSUChannel[] channels;
 
+    private final short[] blockLeft = new short[BLOCK_SAMPLES];
+    private final short[] blockRight = new short[BLOCK_SAMPLES];
+
     private final WarningMemory unmappedWarning;
     private final AudioOut audioOut;
     private final Logger logger;
@@ -165,15 +172,50 @@ public class VirtualSoundUnit extends MappedModules implements ExactlyEmulable {
 
     @Override
     public void tickExact(long cycles) {
-        // TODO
+        while (cycles > 0) {
+            cycles -= renderBlock(cycles);
+        }
+    }
+
+    /**
+     * Synthesises the output samples due in the next {@code cycles}, up to a block, and returns the cycles consumed.
+     * Channels are independent so each one renders its run of samples in turn.
+     */
+    private long renderBlock(long cycles) {
+        long firstSampleCycles = CYCLES_PER_OUTPUT_SAMPLE + 1 - cyclesSinceLastOutputSample;
+        long blockCycles = min(cycles, firstSampleCycles + (BLOCK_SAMPLES - 1) * CYCLES_PER_OUTPUT_SAMPLE);
+        int samples = blockCycles < firstSampleCycles ? 0 : (int) (1 + (blockCycles - firstSampleCycles) / CYCLES_PER_OUTPUT_SAMPLE);
+        long sampledCycles = samples == 0 ? 0 : firstSampleCycles + (samples - 1) * CYCLES_PER_OUTPUT_SAMPLE;
+        Arrays.fill(blockLeft, 0, samples, (short) 0);
+        Arrays.fill(blockRight, 0, samples, (short) 0);
         for (VSUChannel channel : channels) {
-            channel.tickExact(cycles);
+            long cyclesToSample = firstSampleCycles;
+            for (int i = 0; i < samples; i++) {
+                channel.tickExact(cyclesToSample);
+                cyclesToSample = CYCLES_PER_OUTPUT_SAMPLE;
+                if (!channel.isEnabled()) {
+                    continue;
+                }
+                int left = channel.outputSample(OutputChannel.Left);
+                int right = channel.outputSample(OutputChannel.Right);
+                assert (mask(AudioOut.OUTPUT_BITS) & left) == left;
+                assert (mask(AudioOut.OUTPUT_BITS) & right) == right;
+                blockLeft[i] += left;
+                blockRight[i] += right;
+            }
+            channel.tickExact(blockCycles - sampledCycles);
         }
-        cyclesSinceLastOutputSample += cycles;
-        while (cyclesSinceLastOutputSample > CYCLES_PER_OUTPUT_SAMPLE) {
-            sample();
-            cyclesSinceLastOutputSample -= CYCLES_PER_OUTPUT_SAMPLE;
+        cyclesSinceLastOutputSample += blockCycles - samples * CYCLES_PER_OUTPUT_SAMPLE;
+        for (int i = 0; i < samples; i++) {
+            audioOut.update(blockLeft[i] >> 3, blockRight[i] >> 3);
         }
+        return blockCycles;
+    }
+
+    @Override
+    public long cyclesUntilNextEvent() {
+        // channel events are handled while rendering, only wake up to output full blocks
+        return CYCLES_PER_OUTPUT_SAMPLE + 1 - cyclesSinceLastOutputSample + (BLOCK_SAMPLES - 1) * CYCLES_PER_OUTPUT_SAMPLE;
     }
 
     public enum OutputChannel {
@@ -181,25 +223,6 @@ public class VirtualSoundUnit extends MappedModules implements ExactlyEmulable {
         Right
     }
 
-    private void sample() {
-        int sampleLeft = 0;
-        int sampleRight = 0;
-        for (VSUChannel channel : channels) {
-            if (!channel.isEnabled()) {
-                continue;
-            }
-            int left = channel.outputSample(OutputChannel.Left);
-            int right = channel.outputSample(OutputChannel.Right);
-            assert (mask(AudioOut.OUTPUT_BITS) & left) == left;
-            assert (mask(AudioOut.OUTPUT_BITS) & right) == right;
-            sampleLeft += left;
-            sampleRight += right;
-        }
-        sampleLeft >>= 3;
-        sampleRight >>= 3;
-        audioOut.update(sampleLeft, sampleRight);
-    }
-
     public VSUChannel[] getChannels() {
         return channels;
     }
@@ -4,8 +4,12 @@ import gd.twohundred.jvb.components.interfaces.AudioOut;
 import org.junit.jupiter.api.Test;
 
 import java.util.Arrays;
+import java.util.Random;
 
+import static gd.twohundred.jvb.audioutils.ResamplerTest.resampleInRandomBlocks;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
 public class LinearResamplerTest {
@@ -81,8 +85,8 @@ public class LinearResamplerTest {
             resampler.in(0 , 0, out);
         }
 
-        assertArrayEquals(new int[44100], out.getLeft());
-        assertArrayEquals(new int[44100], out.getRight());
+        assertArrayEquals(new int[44099], out.getLeft());
+        assertArrayEquals(new int[44099], out.getRight());
     }
 
     @Test
@@ -94,7 +98,53 @@ public class LinearResamplerTest {
         resampler.in(0 , 8, out);
         resampler.in(0 , 8, out);
 
-        assertArrayEquals(new int[]{8,6,4,2,0}, out.getLeft());
-        assertArrayEquals(new int[]{0,2,4,6,8}, out.getRight());
+        assertArrayEquals(new int[]{8,5,2,0,0}, out.getLeft());
+        assertArrayEquals(new int[]{0,2,5,8,8}, out.getRight());
+    }
+
+    @Test
+    public void blockDoubleRate() {
+        LinearResampler resampler = new LinearResampler(42, 84);
+        short[] out = new short[resampler.getMaxOutputFrames(3) * 2];
+        int frames = resampler.resample(new short[]{8, 0, 4, 4, 0, 8}, 3, out);
+
+        assertEquals(5, frames);
+        assertArrayEquals(new short[]{8, 0, 6, 2, 4, 4, 2, 6, 0, 8}, Arrays.copyOf(out, frames * 2));
+    }
+
+    @Test
+    public void blockMatchesPerSample() {
+        int[][] rates = {{AudioOut.OUTPUT_SAMPLING_DECIHZ, 441000}, {AudioOut.OUTPUT_SAMPLING_DECIHZ, 480000}, {AudioOut.OUTPUT_SAMPLING_DECIHZ, 220500}, {3, 2}};
+        Random random = new Random(42);
+        for (int[] rate : rates) {
+            short[] in = new short[10000 * 2];
+            for (int i = 0; i < in.length; i++) {
+                in[i] = (short) random.nextInt();
+            }
+            LinearResampler perSample = new LinearResampler(rate[0], rate[1]);
+            CollectingOut expected = new CollectingOut(20000);
+            for (int i = 0; i < in.length; i += 2) {
+                perSample.in(in[i], in[i + 1], expected);
+            }
+
+            short[] actual = resampleInRandomBlocks(new LinearResampler(rate[0], rate[1]), in, random);
+            assertEquals(expected.index, actual.length / 2);
+            for (int i = 0; i < expected.index; i++) {
+                assertEquals(expected.left[i], actual[i * 2]);
+                assertEquals(expected.right[i], actual[i * 2 + 1]);
+            }
+        }
+    }
+
+    @Test
+    public void blockOutputBound() {
+        LinearResampler resampler = new LinearResampler(AudioOut.OUTPUT_SAMPLING_DECIHZ, 480000);
+        Random random = new Random(7);
+        for (int i = 0; i < 1000; i++) {
+            int inFrames = random.nextInt(100);
+            int maxFrames = resampler.getMaxOutputFrames(inFrames);
+            int frames = resampler.resample(new short[inFrames * 2], inFrames, new short[maxFrames * 2]);
+            assertTrue(frames <= maxFrames);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,116 @@
+package gd.twohundred.jvb.audioutils;
+
+import gd.twohundred.jvb.components.interfaces.AudioOut;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static gd.twohundred.jvb.audioutils.ResamplerTest.resampleInRandomBlocks;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+public class PolyphaseResamplerTest {
+    private static final int LAG = 8;
+
+    private static short[] resample(Resampler resampler, short[] in) {
+        short[] out = new short[resampler.getMaxOutputFrames(in.length / 2) * 2];
+        int frames = resampler.resample(in, in.length / 2, out);
+        return Arrays.copyOf(out, frames * 2);
+    }
+
+    private static short[] tone(int rate, int frequency, int amplitude, int frames) {
+        short[] samples = new short[frames * 2];
+        for (int i = 0; i < frames; i++) {
+            short value = (short) Math.round(amplitude * Math.sin(2 * Math.PI * frequency * i / rate));
+            samples[i * 2] = value;
+            samples[i * 2 + 1] = value;
+        }
+        return samples;
+    }
+
+    private static double rms(short[] samples, int skipFrames) {
+        double sum = 0;
+        for (int i = skipFrames * 2; i < samples.length; i++) {
+            sum += (double) samples[i] * samples[i];
+        }
+        return Math.sqrt(sum / (samples.length - skipFrames * 2));
+    }
+
+    @Test
+    public void sameRateImpulse() {
+        PolyphaseResampler resampler = new PolyphaseResampler(42, 42);
+        short[] in = new short[(LAG + 20) * 2];
+        in[5 * 2] = 10000;
+        in[5 * 2 + 1] = -10000;
+        short[] out = resample(resampler, in);
+
+        assertEquals(20, out.length / 2);
+        int peak = 0;
+        for (int i = 0; i < out.length / 2; i++) {
+            if (Math.abs(out[i * 2]) > Math.abs(out[peak * 2])) {
+                peak = i;
+            }
+            assertEquals(-out[i * 2], out[i * 2 + 1]);
+        }
+        assertEquals(5, peak);
+    }
+
+    @Test
+    public void silence() {
+        PolyphaseResampler resampler = new PolyphaseResampler(41700, 44100);
+        short[] out = resample(resampler, new short[41700 * 2]);
+
+        assertArrayEquals(new short[44092 * 2], out);
+    }
+
+    @Test
+    public void constant() {
+        PolyphaseResampler resampler = new PolyphaseResampler(AudioOut.OUTPUT_SAMPLING_DECIHZ, 441000);
+        short[] in = new short[4000 * 2];
+        Arrays.fill(in, (short) 12345);
+        short[] out = resample(resampler, in);
+
+        for (int i = LAG * 2 * 2; i < out.length; i++) {
+            assertEquals(12345, out[i]);
+        }
+    }
+
+    @Test
+    public void blockSizeDoesNotMatter() {
+        int[][] rates = {{AudioOut.OUTPUT_SAMPLING_DECIHZ, 441000}, {AudioOut.OUTPUT_SAMPLING_DECIHZ, 480000}, {AudioOut.OUTPUT_SAMPLING_DECIHZ, 220500}, {3, 1}};
+        Random random = new Random(42);
+        for (int[] rate : rates) {
+            short[] in = new short[10000 * 2];
+            for (int i = 0; i < in.length; i++) {
+                in[i] = (short) random.nextInt();
+            }
+            short[] expected = resample(new PolyphaseResampler(rate[0], rate[1]), in);
+            short[] actual = resampleInRandomBlocks(new PolyphaseResampler(rate[0], rate[1]), in, random);
+
+            assertArrayEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void passesAudibleTone() {
+        short[] in = tone(48000, 1000, 10000, 48000);
+        double inRms = rms(in, 0);
+        double outRms = rms(resample(new PolyphaseResampler(48000, 24000), in), LAG);
+
+        assertTrue(Math.abs(outRms - inRms) < inRms * 0.02, "1kHz tone RMS " + outRms + " vs " + inRms);
+    }
+
+    @Test
+    public void attenuatesAboveOutputNyquist() {
+        short[] in = tone(48000, 18000, 10000, 48000);
+        double inRms = rms(in, 0);
+        double linearRms = rms(resample(new LinearResampler(48000, 24000), in), 0);
+        double polyphaseRms = rms(resample(new PolyphaseResampler(48000, 24000), in), LAG);
+
+        assertTrue(polyphaseRms < inRms * 0.05, "aliased tone RMS " + polyphaseRms + " vs " + inRms);
+        assertTrue(polyphaseRms < linearRms / 10, "aliased tone RMS " + polyphaseRms + " vs linear " + linearRms);
+    }
+}
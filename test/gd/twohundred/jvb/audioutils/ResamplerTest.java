@@ -0,0 +1,46 @@
+package gd.twohundred.jvb.audioutils;
+
+import gd.twohundred.jvb.components.interfaces.AudioOut;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+public class ResamplerTest {
+
+    @Test
+    public void rateAdjustment() {
+        for (Resampler.Kind kind : Resampler.Kind.values()) {
+            int[] frames = new int[3];
+            int[] ppms = {-Resampler.MAX_RATE_ADJUSTMENT_PPM, 0, 2 * Resampler.MAX_RATE_ADJUSTMENT_PPM};
+            for (int i = 0; i < ppms.length; i++) {
+                Resampler resampler = kind.create(AudioOut.OUTPUT_SAMPLING_DECIHZ, 441000);
+                resampler.setRateAdjustment(ppms[i]);
+                frames[i] = resampleInRandomBlocks(resampler, new short[100000 * 2], new Random(1)).length / 2;
+            }
+            long nominal = frames[1];
+            // the upper adjustment is clamped
+            assertTrue(Math.abs(nominal * (1_000_000 - Resampler.MAX_RATE_ADJUSTMENT_PPM) / 1_000_000 - frames[0]) <= nominal / 10000, kind + ": " + frames[0] + " vs " + nominal);
+            assertTrue(Math.abs(nominal * (1_000_000 + Resampler.MAX_RATE_ADJUSTMENT_PPM) / 1_000_000 - frames[2]) <= nominal / 10000, kind + ": " + frames[2] + " vs " + nominal);
+        }
+    }
+
+    static short[] resampleInRandomBlocks(Resampler resampler, short[] in, Random random) {
+        short[] out = new short[resampler.getMaxOutputFrames(in.length / 2) * 4 + 64];
+        short[] block = new short[128 * 2];
+        short[] blockOut = new short[resampler.getMaxOutputFrames(128) * 2];
+        int produced = 0;
+        for (int frame = 0; frame < in.length / 2; ) {
+            int frames = Math.min(random.nextInt(129), in.length / 2 - frame);
+            System.arraycopy(in, frame * 2, block, 0, frames * 2);
+            int outFrames = resampler.resample(block, frames, blockOut);
+            System.arraycopy(blockOut, 0, out, produced * 2, outFrames * 2);
+            produced += outFrames;
+            frame += frames;
+        }
+        return Arrays.copyOf(out, produced * 2);
+    }
+}
@@ -0,0 +1,336 @@
+package gd.twohundred.jvb.components.vip;
+
+import gd.twohundred.jvb.Logger;
+import gd.twohundred.jvb.components.interfaces.Screen;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static gd.twohundred.jvb.Utils.extractS;
+import static gd.twohundred.jvb.Utils.extractU;
+import static gd.twohundred.jvb.Utils.testBit;
+import static gd.twohundred.jvb.components.vip.BackgroundSegmentsAndParametersRAM.BACKGROUND_SEGMENT_CELL_SIZE;
+import static gd.twohundred.jvb.components.vip.BackgroundSegmentsAndParametersRAM.BACKGROUND_SEGMENT_HEIGHT_PX;
+import static gd.twohundred.jvb.components.vip.BackgroundSegmentsAndParametersRAM.BACKGROUND_SEGMENT_SIZE;
+import static gd.twohundred.jvb.components.vip.BackgroundSegmentsAndParametersRAM.BACKGROUND_SEGMENT_WIDTH_CELLS;
+import static gd.twohundred.jvb.components.vip.BackgroundSegmentsAndParametersRAM.BACKGROUND_SEGMENT_WIDTH_PX;
+import static gd.twohundred.jvb.components.vip.CharacterRAM.CHARACTER_HEIGHT_PX;
+import static gd.twohundred.jvb.components.vip.CharacterRAM.CHARACTER_WIDTH_PX;
+import static gd.twohundred.jvb.components.vip.VirtualImageProcessor.DRAWING_BLOCK_COUNT;
+import static gd.twohundred.jvb.components.vip.VirtualImageProcessor.DRAWING_BLOCK_HEIGHT;
+import static gd.twohundred.jvb.components.vip.VirtualImageProcessor.FRAME_PERIOD;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+public class VirtualImageProcessorTest {
+    private static final int[] FRAME_BUFFER_STARTS = {
+            VirtualImageProcessor.LEFT_FRAMEBUFFER_0_START, VirtualImageProcessor.LEFT_FRAMEBUFFER_1_START,
+            VirtualImageProcessor.RIGHT_FRAMEBUFFER_0_START, VirtualImageProcessor.RIGHT_FRAMEBUFFER_1_START};
+    private static final int CLEAR_COLOR = 0x70;
+    private static final int SEEDS = 24;
+    private static final int FRAMES = 4;
+
+    private static final Logger NO_LOGGER = new Logger() {
+        @Override
+        public void log(Component component, Level level, String format, Object... args) {
+        }
+
+        @Override
+        public boolean isLevelEnabled(Component component, Level level) {
+            return false;
+        }
+    };
+
+    private static final Screen NO_SCREEN = (left, right, debugDrawer) -> {
+    };
+
+    /**
+     * Fills VRAM, the control registers and the worlds with random values. World 31 is either an END world or one of
+     * a random number of drawn worlds.
+     */
+    private static VirtualImageProcessor randomVIP(int seed, boolean world31End) {
+        Random random = new Random(seed);
+        VirtualImageProcessor vip = new VirtualImageProcessor(NO_SCREEN, NO_LOGGER);
+        vip.reset();
+        CharacterRAM characterRam = vip.getCharacterRam();
+        for (int address = 0; address < CharacterRAM.SIZE; address += 2) {
+            characterRam.setHalfWord(address, (short) (random.nextInt(3) == 0 ? 0 : random.nextInt(0x10000)));
+        }
+        BackgroundSegmentsAndParametersRAM backgrounds = vip.getBackgroundSegmentsAndWindowParameterTable();
+        for (int address = 0; address < BackgroundSegmentsAndParametersRAM.SIZE; address += 2) {
+            // keep the line-shift and affine parameters in the upper part of the table small enough to be visible
+            int value = address >= 0x10000 ? random.nextInt(1024) - 512 : random.nextInt(0x10000);
+            backgrounds.setHalfWord(address, (short) value);
+        }
+        ObjectAttributesMemory oam = vip.getObjectAttributesMemory();
+        for (int address = 0; address < oam.getSize(); address += ObjectAttributesMemory.ATTRIBUTES_SIZE) {
+            oam.setHalfWord(address + ObjectAttributesMemory.ATTRIBUTES_X_START, (short) (random.nextInt(420) - 20));
+            oam.setHalfWord(address + ObjectAttributesMemory.ATTRIBUTES_PARALLAX_LR_START, (short) random.nextInt(0x10000));
+            oam.setHalfWord(address + ObjectAttributesMemory.ATTRIBUTES_Y_START, (short) (random.nextInt(250) - 12));
+            oam.setHalfWord(address + ObjectAttributesMemory.ATTRIBUTES_CELL_START, (short) random.nextInt(0x10000));
+        }
+        VIPControlRegisters controlRegs = vip.getControlRegisters();
+        for (int palette = 0x60; palette <= 0x6e; palette += 2) {
+            controlRegs.setHalfWord(palette, (short) random.nextInt(0x100));
+        }
+        for (int objectGroup = 0x48; objectGroup <= 0x4e; objectGroup += 2) {
+            controlRegs.setHalfWord(objectGroup, (short) random.nextInt(1024));
+        }
+        controlRegs.setHalfWord(CLEAR_COLOR, (short) random.nextInt(4));
+        controlRegs.setHalfWord(0x22, (short) 0x2); // enable display
+        controlRegs.setHalfWord(0x42, (short) 0x2); // enable drawing
+        int drawnWindows = world31End ? 0 : 1 + random.nextInt(VirtualImageProcessor.WINDOW_ATTRIBUTE_COUNT);
+        WindowAttributes[] windows = vip.getWindowAttributes();
+        for (int i = windows.length - 1; i >= 0; i--) {
+            int backgroundHeight = random.nextInt(4);
+            int backgroundWidth = random.nextInt(4) < 3 ? backgroundHeight : random.nextInt(4);
+            int flags = random.nextInt(13)
+                    | (random.nextBoolean() ? 1 << 7 : 0)
+                    | backgroundHeight << 8
+                    | backgroundWidth << 10
+                    | random.nextInt(4) << 12
+                    | (random.nextInt(4) != 0 ? 1 << 14 : 0)
+                    | (random.nextInt(4) != 0 ? 1 << 15 : 0);
+            if (windows.length - 1 - i >= drawnWindows) {
+                flags |= 1 << 6;
+            }
+            WindowAttributes window = windows[i];
+            window.setHalfWord(0, (short) flags);
+            window.setHalfWord(2, (short) (random.nextInt(480) - 64));
+            window.setHalfWord(4, (short) (random.nextInt(33) - 16));
+            window.setHalfWord(6, (short) (random.nextInt(260) - 16));
+            window.setHalfWord(8, (short) (random.nextBoolean() ? random.nextInt(0x10000) : random.nextInt(1024) - 512));
+            window.setHalfWord(10, (short) (random.nextInt(33) - 16));
+            window.setHalfWord(12, (short) (random.nextBoolean() ? random.nextInt(0x10000) : random.nextInt(1024) - 512));
+            window.setHalfWord(14, (short) random.nextInt(400));
+            window.setHalfWord(16, (short) random.nextInt(240));
+            window.setHalfWord(18, (short) random.nextInt(0xEC00 - 8 * 256 - 16));
+            window.setHalfWord(20, (short) random.nextInt(0x2000));
+        }
+        return vip;
+    }
+
+    private static void tickFrame(VirtualImageProcessor vip, Random random) {
+        long cycles = FRAME_PERIOD;
+        while (cycles > 0) {
+            long chunk = Math.min(cycles, 1 + random.nextInt(5000));
+            vip.tickExact(chunk);
+            cycles -= chunk;
+        }
+    }
+
+    private static int[] frameBuffers(VirtualImageProcessor vip) {
+        int[] words = new int[FRAME_BUFFER_STARTS.length * FrameBuffer.SIZE / Integer.BYTES];
+        int i = 0;
+        for (int start : FRAME_BUFFER_STARTS) {
+            for (int address = start; address < start + FrameBuffer.SIZE; address += Integer.BYTES) {
+                words[i++] = vip.getWord(address);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Draws a frame pixel by pixel, block by block and world by world, the way the VIP drew before it worked in
+     * character spans. Each block is cleared with the clear colour latched when the previous block started.
+     */
+    private static FrameBuffer drawReference(VirtualImageProcessor vip, boolean left, int firstClearColor) {
+        FrameBuffer frameBuffer = new FrameBuffer(0);
+        int clearColor = firstClearColor;
+        for (int block = 0; block < DRAWING_BLOCK_COUNT; block++) {
+            int minY = block * DRAWING_BLOCK_HEIGHT;
+            int maxY = minY + DRAWING_BLOCK_HEIGHT;
+            for (int x = 0; x < Screen.WIDTH; x++) {
+                for (int y = minY; y < maxY; y++) {
+                    frameBuffer.setPixel(x, y, clearColor);
+                }
+            }
+            clearColor = vip.getControlRegisters().getClearColor();
+            int objectGroup = 3;
+            for (int id = VirtualImageProcessor.WINDOW_ATTRIBUTE_COUNT - 1; id >= 0; id--) {
+                WindowAttributes window = vip.getWindowAttributes()[id];
+                if (window.isStop()) {
+                    break;
+                }
+                boolean drawn = left ? window.isDrawLeft() : window.isDrawRight();
+                if (window.getMode() instanceof ObjectWindowMode) {
+                    if (drawn && objectGroup >= 0) {
+                        drawReferenceObjects(vip, frameBuffer, objectGroup, minY, maxY, left);
+                    }
+                    objectGroup--;
+                } else if (drawn) {
+                    drawReferenceBackground(vip, frameBuffer, window, minY, maxY, left);
+                }
+            }
+        }
+        return frameBuffer;
+    }
+
+    private static void drawReferenceBackground(VirtualImageProcessor vip, FrameBuffer frameBuffer, WindowAttributes window, int minY, int maxY, boolean left) {
+        int widthSegments = window.getBackgroundWidthSegments();
+        int heightSegments = window.getBackgroundHeightSegments();
+        if (widthSegments * heightSegments > 8 || widthSegments * heightSegments + window.getBaseSegmentIndex() >= BackgroundSegmentsAndParametersRAM.SIZE / BACKGROUND_SEGMENT_SIZE) {
+            return;
+        }
+        BackgroundSegmentsAndParametersRAM table = vip.getBackgroundSegmentsAndWindowParameterTable();
+        byte[] palettes = vip.getControlRegisters().getBackgroundPalettes();
+        int parallax = left ? -window.getParallax() : window.getParallax();
+        int backgroundParallax = left ? -window.getBackgroundParallax() : window.getBackgroundParallax();
+        for (int windowY = max(minY - window.getY(), 0); windowY < min(maxY - window.getY(), window.getActualHeight()); windowY++) {
+            int y = windowY + window.getY();
+            for (int windowX = 0; windowX < window.getActualWidth(); windowX++) {
+                int x = windowX + window.getX() + parallax;
+                if (x < 0 || x >= Screen.WIDTH) {
+                    continue;
+                }
+                int backgroundX;
+                int backgroundY;
+                if (window.getMode() instanceof AffineWindowMode) {
+                    int parameterAddress = (window.getParameterIndex() + 8 * windowY) * Short.BYTES;
+                    int affineParallax = (short) table.getHalfWord(parameterAddress + 1 * Short.BYTES);
+                    int affineX = (affineParallax < 0) ^ left ? windowX : windowX + affineParallax;
+                    // offsets have 3 fractional bits, increments 9
+                    backgroundX = (int) (((long) (short) table.getHalfWord(parameterAddress + 3 * Short.BYTES) * affineX
+                            + ((long) (short) table.getHalfWord(parameterAddress) << 6)) >> 9);
+                    backgroundY = (int) (((long) (short) table.getHalfWord(parameterAddress + 4 * Short.BYTES) * affineX
+                            + ((long) (short) table.getHalfWord(parameterAddress + 2 * Short.BYTES) << 6)) >> 9);
+                } else {
+                    backgroundX = window.getBackgroundX() + backgroundParallax + windowX;
+                    backgroundY = window.getBackgroundY() + windowY;
+                    if (window.getMode() instanceof LineShiftWindowMode) {
+                        backgroundX += (short) table.getHalfWord((window.getParameterIndex() + 2 * windowY + (left ? 0 : 1)) * Short.BYTES);
+                    }
+                }
+                int cellAddress;
+                if (window.isUseOutOfBoundsCharacter() && (backgroundX < 0 || backgroundX >= widthSegments * BACKGROUND_SEGMENT_WIDTH_PX
+                        || backgroundY < 0 || backgroundY >= heightSegments * BACKGROUND_SEGMENT_HEIGHT_PX)) {
+                    cellAddress = window.getBaseSegmentIndex() * BACKGROUND_SEGMENT_SIZE + window.getOutOfBoundsCharacter() * BACKGROUND_SEGMENT_CELL_SIZE;
+                } else {
+                    // the VIP wraps y with the width and x with the height in segments
+                    backgroundY &= widthSegments * BACKGROUND_SEGMENT_HEIGHT_PX - 1;
+                    backgroundX &= heightSegments * BACKGROUND_SEGMENT_WIDTH_PX - 1;
+                    int segment = window.getBaseSegmentIndex() + backgroundX / BACKGROUND_SEGMENT_WIDTH_PX + backgroundY / BACKGROUND_SEGMENT_HEIGHT_PX * widthSegments;
+                    int cellX = (backgroundX & (BACKGROUND_SEGMENT_WIDTH_PX - 1)) / CHARACTER_WIDTH_PX;
+                    int cellY = (backgroundY & (BACKGROUND_SEGMENT_HEIGHT_PX - 1)) / CHARACTER_HEIGHT_PX;
+                    cellAddress = segment * BACKGROUND_SEGMENT_SIZE + (cellX + cellY * BACKGROUND_SEGMENT_WIDTH_CELLS) * BACKGROUND_SEGMENT_CELL_SIZE;
+                }
+                int cell = table.getHalfWord(cellAddress);
+                drawReferencePixel(vip, frameBuffer, x, y, backgroundX & (CHARACTER_WIDTH_PX - 1), backgroundY & (CHARACTER_HEIGHT_PX - 1), cell, palettes);
+            }
+        }
+    }
+
+    private static void drawReferenceObjects(VirtualImageProcessor vip, FrameBuffer frameBuffer, int objectGroup, int minY, int maxY, boolean left) {
+        short[] groupIndexes = vip.getControlRegisters().getObjectGroupIndexes();
+        int lastIndex = objectGroup == 0 || groupIndexes[objectGroup - 1] >= groupIndexes[objectGroup] ? 0 : groupIndexes[objectGroup - 1] + 1;
+        ObjectAttributesMemory oam = vip.getObjectAttributesMemory();
+        byte[] palettes = vip.getControlRegisters().getObjectPalettes();
+        for (int index = groupIndexes[objectGroup]; index >= lastIndex; index--) {
+            int address = index * ObjectAttributesMemory.ATTRIBUTES_SIZE;
+            int parallaxLR = oam.getHalfWord(address + ObjectAttributesMemory.ATTRIBUTES_PARALLAX_LR_START);
+            if (!testBit(parallaxLR, left ? ObjectAttributesMemory.PARALLAX_LR_LEFT_POS : ObjectAttributesMemory.PARALLAX_LR_RIGHT_POS)) {
+                continue;
+            }
+            int parallax = extractS(parallaxLR, ObjectAttributesMemory.PARALLAX_LR_PARALLAX_POS, ObjectAttributesMemory.PARALLAX_LR_PARALLAX_LEN);
+            int objectX = (short) oam.getHalfWord(address + ObjectAttributesMemory.ATTRIBUTES_X_START) + (left ? -parallax : parallax);
+            int objectY = (short) oam.getHalfWord(address + ObjectAttributesMemory.ATTRIBUTES_Y_START);
+            int cell = oam.getHalfWord(address + ObjectAttributesMemory.ATTRIBUTES_CELL_START);
+            for (int characterY = 0; characterY < CHARACTER_HEIGHT_PX; characterY++) {
+                int y = objectY + characterY;
+                if (y < minY || y >= maxY) {
+                    continue;
+                }
+                for (int characterX = 0; characterX < CHARACTER_WIDTH_PX; characterX++) {
+                    int x = objectX + characterX;
+                    if (x >= 0 && x < Screen.WIDTH) {
+                        drawReferencePixel(vip, frameBuffer, x, y, characterX, characterY, cell, palettes);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Draws one pixel of a character straight from the character RAM bytes.
+     */
+    private static void drawReferencePixel(VirtualImageProcessor vip, FrameBuffer frameBuffer, int x, int y, int characterX, int characterY, int cell, byte[] palettes) {
+        int character = extractU(cell, WindowMode.CELL_CHARACTER_POS, WindowMode.CELL_CHARACTER_LEN);
+        int palette = palettes[extractU(cell, WindowMode.CELL_PALETTE_INDEX_POS, WindowMode.CELL_PALETTE_INDEX_LEN)] & 0b11_11_11_00;
+        if (testBit(cell, WindowMode.CELL_HORIZONTAL_FLIP_POS)) {
+            characterX = CHARACTER_WIDTH_PX - characterX - 1;
+        }
+        if (testBit(cell, WindowMode.CELL_VERTICAL_FLIP_POS)) {
+            characterY = CHARACTER_HEIGHT_PX - characterY - 1;
+        }
+        int pixelIndex = characterX + characterY * CHARACTER_WIDTH_PX;
+        int characterByte = vip.getCharacterRam().getByte(character * CharacterRAM.CHARACTER_SIZE + pixelIndex / FrameBuffer.PIXEL_PER_BYTE);
+        int pixel = (characterByte >> (pixelIndex % FrameBuffer.PIXEL_PER_BYTE * FrameBuffer.BITS_PER_PIXEL)) & 0b11;
+        if (pixel != 0) {
+            frameBuffer.setPixel(x, y, (palette >> (pixel * FrameBuffer.BITS_PER_PIXEL)) & 0b11);
+        }
+    }
+
+    private static int[] screenPixels(FrameBuffer frameBuffer) {
+        int[] pixels = new int[Screen.WIDTH * Screen.HEIGHT];
+        for (int x = 0; x < Screen.WIDTH; x++) {
+            for (int y = 0; y < Screen.HEIGHT; y++) {
+                int pixelIndex = x * FrameBuffer.HEIGHT + y;
+                int b = frameBuffer.getByte(pixelIndex / FrameBuffer.PIXEL_PER_BYTE);
+                pixels[x * Screen.HEIGHT + y] = (b >> (pixelIndex % FrameBuffer.PIXEL_PER_BYTE * FrameBuffer.BITS_PER_PIXEL)) & 0b11;
+            }
+        }
+        return pixels;
+    }
+
+    @Test
+    public void matchesPerPixelReference() {
+        int drawingSeeds = 0;
+        for (int seed = 0; seed < SEEDS; seed++) {
+            VirtualImageProcessor vip = randomVIP(seed, false);
+            Random random = new Random(seed);
+            // drawing starts with the second frame, block 0 is cleared with the colour latched at reset
+            tickFrame(vip, random);
+            tickFrame(vip, random);
+            for (boolean left : new boolean[]{true, false}) {
+                int[] expected = screenPixels(drawReference(vip, left, 0));
+
+                assertArrayEquals(expected, screenPixels(vip.getCurrentFrameBuffer(left)), "seed " + seed + (left ? ", left" : ", right"));
+                if (left && Arrays.stream(expected).distinct().count() > 2) {
+                    drawingSeeds++;
+                }
+            }
+        }
+        assertTrue(drawingSeeds > SEEDS / 2, "only " + drawingSeeds + " states draw anything");
+    }
+
+    @Test
+    public void deferredDrawingMatchesCycleByCycle() {
+        int endSeeds = 0;
+        for (int seed = 0; seed < SEEDS; seed++) {
+            boolean world31End = seed % 4 == 0;
+            VirtualImageProcessor cycleByCycle = randomVIP(seed, world31End);
+            VirtualImageProcessor deferred = randomVIP(seed, world31End);
+            deferred.setDeferredDrawing(true);
+            Random random = new Random(seed);
+            for (int frame = 0; frame < FRAMES; frame++) {
+                tickFrame(cycleByCycle, random);
+                tickFrame(deferred, random);
+
+                assertArrayEquals(frameBuffers(cycleByCycle), frameBuffers(deferred), "seed " + seed + ", frame " + frame);
+
+                // the clear colour is latched block by block, change it while no drawing is going on
+                short clearColor = (short) random.nextInt(4);
+                cycleByCycle.getControlRegisters().setHalfWord(CLEAR_COLOR, clearColor);
+                deferred.getControlRegisters().setHalfWord(CLEAR_COLOR, clearColor);
+            }
+            if (cycleByCycle.getWindowAttributes()[VirtualImageProcessor.WINDOW_ATTRIBUTE_COUNT - 1].isStop()) {
+                endSeeds++;
+            }
+        }
+        assertTrue(endSeeds > 0, "no state with world 31 END");
+    }
+}
@@ -0,0 +1,135 @@
+package gd.twohundred.jvb.components.vsu;
+
+import gd.twohundred.jvb.Logger;
+import gd.twohundred.jvb.components.interfaces.AudioOut;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static gd.twohundred.jvb.components.vsu.VirtualSoundUnit.CYCLES_PER_OUTPUT_SAMPLE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+public class VirtualSoundUnitTest {
+    private static final int[] CHANNEL_REGISTERS = {0x00, 0x04, 0x08, 0x0C, 0x10, 0x14, 0x18, 0x1C};
+    private static final int WRITES = 100;
+
+    private static final Logger NO_LOGGER = new Logger() {
+        @Override
+        public void log(Component component, Level level, String format, Object... args) {
+        }
+
+        @Override
+        public boolean isLevelEnabled(Component component, Level level) {
+            return false;
+        }
+    };
+
+    private interface Ticker {
+        void tick(VirtualSoundUnit vsu, List<Long> out, long cycles);
+    }
+
+    private static class CollectingOut implements AudioOut {
+        private final List<Long> samples = new ArrayList<>();
+
+        @Override
+        public void update(int left, int right) {
+            samples.add(((long) left << 32) | right);
+        }
+    }
+
+    /**
+     * Plays a random trace of register writes separated by random delays and returns the output samples.
+     */
+    private static List<Long> play(int seed, Ticker ticker) {
+        Random random = new Random(seed);
+        CollectingOut out = new CollectingOut();
+        VirtualSoundUnit vsu = new VirtualSoundUnit(out, NO_LOGGER);
+        vsu.reset();
+        for (int address = VirtualSoundUnit.WAVE_TABLE_0_START; address < VirtualSoundUnit.MODULATION_TABLE_START; address += 4) {
+            vsu.setByte(address, (byte) random.nextInt(64));
+        }
+        for (int address = VirtualSoundUnit.MODULATION_TABLE_START; address < VirtualSoundUnit.MODULATION_TABLE_START + 0x80; address += 4) {
+            vsu.setByte(address, (byte) random.nextInt(256));
+        }
+        // reset leaves out of range volumes behind
+        for (int channel = 0; channel < vsu.getChannels().length; channel++) {
+            for (int register : CHANNEL_REGISTERS) {
+                vsu.setByte(VirtualSoundUnit.CHANNEL_1_START + channel * 0x40 + register, (byte) random.nextInt(256));
+            }
+        }
+        for (int i = 0; i < WRITES; i++) {
+            long delay = random.nextInt(4) == 0 ? random.nextInt(100) : random.nextInt(60000);
+            ticker.tick(vsu, out.samples, delay);
+            int channel = random.nextInt(vsu.getChannels().length);
+            int register = CHANNEL_REGISTERS[random.nextInt(CHANNEL_REGISTERS.length)];
+            int value = random.nextInt(256);
+            if (register == 0x00 && random.nextInt(3) > 0) {
+                value |= 0x80;
+            }
+            vsu.setByte(VirtualSoundUnit.CHANNEL_1_START + channel * 0x40 + register, (byte) value);
+        }
+        return out.samples;
+    }
+
+    /**
+     * Steps every channel one cycle at a time and mixes a sample whenever one is due.
+     */
+    private static Ticker cycleByCycle() {
+        long[] cyclesSinceLastOutputSample = new long[1];
+        return (vsu, out, cycles) -> {
+            for (long c = 0; c < cycles; c++) {
+                for (VSUChannel channel : vsu.getChannels()) {
+                    channel.tickExact(1);
+                }
+                if (++cyclesSinceLastOutputSample[0] > CYCLES_PER_OUTPUT_SAMPLE) {
+                    int left = 0;
+                    int right = 0;
+                    for (VSUChannel channel : vsu.getChannels()) {
+                        if (channel.isEnabled()) {
+                            left += channel.outputSample(VirtualSoundUnit.OutputChannel.Left);
+                            right += channel.outputSample(VirtualSoundUnit.OutputChannel.Right);
+                        }
+                    }
+                    out.add(((long) (left >> 3) << 32) | (right >> 3));
+                    cyclesSinceLastOutputSample[0] -= CYCLES_PER_OUTPUT_SAMPLE;
+                }
+            }
+        };
+    }
+
+    private static Ticker inChunks(int seed, int maxChunk) {
+        Random random = new Random(seed);
+        return (vsu, out, cycles) -> {
+            while (cycles > 0) {
+                long chunk = Math.min(cycles, 1 + random.nextInt(maxChunk));
+                vsu.tickExact(chunk);
+                cycles -= chunk;
+            }
+        };
+    }
+
+    @Test
+    public void matchesCycleByCycle() {
+        for (int seed = 0; seed < 4; seed++) {
+            List<Long> expected = play(seed, cycleByCycle());
+            List<Long> actual = play(seed, (vsu, out, cycles) -> vsu.tickExact(cycles));
+
+            assertTrue(expected.stream().anyMatch(sample -> sample != 0), "seed " + seed + " is silent");
+            assertEquals(expected, actual, "seed " + seed);
+        }
+    }
+
+    @Test
+    public void chunkingDoesNotMatter() {
+        for (int seed = 0; seed < 4; seed++) {
+            List<Long> expected = play(seed, (vsu, out, cycles) -> vsu.tickExact(cycles));
+
+            assertEquals(expected, play(seed, inChunks(seed, 7)), "seed " + seed + ", small chunks");
+            assertEquals(expected, play(seed, inChunks(seed, 200000)), "seed " + seed + ", large chunks");
+        }
+    }
+}